@@ -1,12 +0,0 @@
-package com.codehacks;
-
-import org.springframework.boot.SpringApplication;
-import org.springframework.boot.autoconfigure.SpringBootApplication;
-
-@SpringBootApplication
-public class BlogContractApplication {
-
-    public static void main(String[] args) {
-        SpringApplication.run(BlogContractApplication.class);
-    }
-}
\ No newline at end of file
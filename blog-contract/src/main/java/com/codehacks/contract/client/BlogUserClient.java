@@ -0,0 +1,423 @@
+package com.codehacks.contract.client;
+
+import com.codehacks.contract.api.UsersApi;
+import com.codehacks.contract.invoker.ApiClient;
+import com.codehacks.contract.invoker.ApiException;
+import com.codehacks.contract.model.UserBatchResponse;
+import com.codehacks.contract.model.UserRequest;
+import com.codehacks.contract.model.UserResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Typed client for the user API on top of the code generated from
+ * {@code open-api.yml}.
+ * <p>
+ * All calls share one HTTP/2-capable {@link HttpClient}, so connections are
+ * pooled and kept alive between requests. Failed calls are retried with full
+ * jitter backoff: idempotent calls on I/O errors and 429/502/503/504 responses,
+ * {@code createUser} only when the connection could not be opened. Reads are
+ * hedged: if the first attempt has not answered within the hedge delay a second
+ * one is sent and whichever succeeds first wins. Retries and hedges draw on a
+ * shared {@link RetryBudget}, so when the server struggles the client adds at
+ * most a fixed fraction of extra requests instead of multiplying its load.
+ * Every call is timed in the {@code blog.client.requests} timer, tagged by
+ * operation and outcome.
+ */
+public final class BlogUserClient {
+
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(429, 502, 503, 504);
+
+    private final UsersApi api;
+    private final HttpClient httpClient;
+    private final ObjectReader userReader;
+    private final String baseUri;
+    private final Duration readTimeout;
+    private final int maxRetries;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Duration hedgeDelay;
+    private final RetryBudget retryBudget;
+    private final MeterRegistry meterRegistry;
+
+    private BlogUserClient(Builder builder) {
+        HttpClient.Builder httpClientBuilder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(builder.connectTimeout);
+        this.httpClient = httpClientBuilder.build();
+        ObjectMapper mapper = ApiClient.createDefaultObjectMapper();
+        ApiClient apiClient = new ApiClient(httpClientBuilder, mapper, builder.baseUri) {
+            @Override
+            public HttpClient getHttpClient() {
+                return httpClient;
+            }
+        };
+        apiClient.setReadTimeout(builder.readTimeout);
+        this.api = new UsersApi(apiClient);
+        this.userReader = mapper.readerFor(UserResponse.class);
+        this.baseUri = apiClient.getBaseUri();
+        this.readTimeout = builder.readTimeout;
+        this.maxRetries = builder.maxRetries;
+        this.initialBackoffNanos = builder.initialBackoff.toNanos();
+        this.maxBackoffNanos = builder.maxBackoff.toNanos();
+        this.hedgeDelay = builder.hedgeDelay;
+        this.retryBudget = new RetryBudget(builder.retryBudgetRatio, builder.retryBudgetTokens);
+        this.meterRegistry = builder.meterRegistry;
+    }
+
+    public static Builder builder(String baseUri) {
+        return new Builder(baseUri);
+    }
+
+    public CompletableFuture<UserResponse> getUserById(long id) {
+        return read("getUserById", () -> api.getUserById(id));
+    }
+
+    public CompletableFuture<UserBatchResponse> getUsersByIds(List<Long> ids) {
+        return read("getUsersByIds", () -> api.getUsersByIds(ids));
+    }
+
+    public CompletableFuture<UserResponse> createUser(UserRequest request) {
+        return call("createUser", () -> api.createUser(request), BlogUserClient::isUnsent, false);
+    }
+
+    public CompletableFuture<UserResponse> updateUser(long id, UserRequest request) {
+        return call("updateUser", () -> api.updateUser(id, request), BlogUserClient::isRetryable, false);
+    }
+
+    public CompletableFuture<Void> deleteUser(long id) {
+        return call("deleteUser", () -> api.deleteUser(id), BlogUserClient::isRetryable, false);
+    }
+
+    /**
+     * Lists all users, decoding the response body one element at a time instead
+     * of buffering the whole array. The stream holds an HTTP connection until it
+     * is closed or fully consumed.
+     */
+    public Stream<UserResponse> streamAllUsers() {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUri + "/api/v1/users"))
+                .header("Accept", "application/json")
+                .timeout(readTimeout)
+                .GET()
+                .build();
+        InputStream body = await(call("getAllUsers", () -> httpClient
+                .sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+                .thenCompose(BlogUserClient::checkStatus), BlogUserClient::isRetryable, false));
+        try {
+            MappingIterator<UserResponse> users = userReader.readValues(body);
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(users, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                    .onClose(() -> closeQuietly(users));
+        } catch (IOException ex) {
+            closeQuietly(body);
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * The generated API, for operations this client does not wrap.
+     */
+    public UsersApi api() {
+        return api;
+    }
+
+    private <T> CompletableFuture<T> read(String operation, ApiCall<T> request) {
+        return call(operation, request, BlogUserClient::isRetryable, true);
+    }
+
+    private <T> CompletableFuture<T> call(String operation, ApiCall<T> request,
+                                          Predicate<Throwable> retryable, boolean hedged) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        retryBudget.deposit();
+        Supplier<CompletableFuture<T>> attempt = hedged
+                ? () -> hedge(operation, request)
+                : () -> send(request);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(operation, attempt, retryable, 0, result);
+        return result.whenComplete((value, failure) -> sample.stop(Timer.builder("blog.client.requests")
+                .description("Latency of blog user API calls, including retries and hedges")
+                .tag("operation", operation)
+                .tag("outcome", outcome(failure))
+                .publishPercentileHistogram()
+                .register(meterRegistry)));
+    }
+
+    private <T> void attempt(String operation, Supplier<CompletableFuture<T>> attempt, Predicate<Throwable> retryable,
+                             int retry, CompletableFuture<T> result) {
+        attempt.get().whenComplete((value, failure) -> {
+            if (failure == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = unwrap(failure);
+            if (retry >= maxRetries || !retryable.test(cause)) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            if (!retryBudget.tryWithdraw()) {
+                counter("blog.client.budget_exhausted", operation).increment();
+                result.completeExceptionally(cause);
+                return;
+            }
+            counter("blog.client.retries", operation).increment();
+            long delay = backoffNanos(retry);
+            CompletableFuture.runAsync(() -> attempt(operation, attempt, retryable, retry + 1, result),
+                    CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    /**
+     * Sends the request and, if it is still outstanding after the hedge delay,
+     * a second copy of it. Fails only when every copy sent has failed.
+     */
+    private <T> CompletableFuture<T> hedge(String operation, ApiCall<T> request) {
+        CompletableFuture<T> primary = send(request);
+        if (hedgeDelay.isZero() || hedgeDelay.isNegative()) {
+            return primary;
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        HedgeState state = new HedgeState();
+        primary.whenComplete((value, failure) -> settle(result, state, value, failure, true));
+        CompletableFuture.delayedExecutor(hedgeDelay.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+            synchronized (state) {
+                if (result.isDone() || state.primaryFailed) {
+                    return;
+                }
+                if (!retryBudget.tryWithdraw()) {
+                    counter("blog.client.budget_exhausted", operation).increment();
+                    return;
+                }
+                state.hedgeSent = true;
+            }
+            counter("blog.client.hedges", operation).increment();
+            send(request).whenComplete((value, failure) -> settle(result, state, value, failure, false));
+        });
+        return result;
+    }
+
+    private static <T> void settle(CompletableFuture<T> result, HedgeState state, T value, Throwable failure,
+                                   boolean primary) {
+        if (failure == null) {
+            result.complete(value);
+            return;
+        }
+        synchronized (state) {
+            if (primary) {
+                state.primaryFailed = true;
+            }
+            state.failures++;
+            if (state.failures < (state.hedgeSent ? 2 : 1)) {
+                return;
+            }
+        }
+        result.completeExceptionally(failure);
+    }
+
+    private static <T> CompletableFuture<T> send(ApiCall<T> request) {
+        try {
+            return request.send();
+        } catch (ApiException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    private long backoffNanos(int retry) {
+        long ceiling = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(retry, 30));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private Counter counter(String name, String operation) {
+        return Counter.builder(name).tag("operation", operation).register(meterRegistry);
+    }
+
+    private static CompletableFuture<InputStream> checkStatus(HttpResponse<InputStream> response) {
+        if (response.statusCode() / 100 == 2) {
+            return CompletableFuture.completedFuture(response.body());
+        }
+        try (InputStream body = response.body()) {
+            String message = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+            return CompletableFuture.failedFuture(new ApiException(response.statusCode(),
+                    "getAllUsers call failed with: " + response.statusCode() + " - " + message,
+                    response.headers(), message));
+        } catch (IOException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    static boolean isRetryable(Throwable failure) {
+        if (failure instanceof ApiException apiException) {
+            return apiException.getCode() == 0
+                    ? isTransportFailure(apiException.getCause())
+                    : RETRYABLE_STATUSES.contains(apiException.getCode());
+        }
+        return isTransportFailure(failure);
+    }
+
+    /**
+     * Only failures to open a connection are safe to retry for non-idempotent
+     * calls, since the server cannot have seen the request.
+     */
+    static boolean isUnsent(Throwable failure) {
+        return failure instanceof ConnectException
+                || failure instanceof ApiException && failure.getCause() instanceof ConnectException;
+    }
+
+    private static boolean isTransportFailure(Throwable failure) {
+        return failure instanceof IOException && !(failure instanceof JsonProcessingException);
+    }
+
+    private static String outcome(Throwable failure) {
+        if (failure == null) {
+            return "SUCCESS";
+        }
+        if (failure instanceof ApiException apiException && apiException.getCode() != 0) {
+            return apiException.getCode() / 100 == 4 ? "CLIENT_ERROR" : "SERVER_ERROR";
+        }
+        return failure instanceof IOException || failure instanceof ApiException ? "IO_ERROR" : "UNKNOWN";
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        while ((failure instanceof CompletionException || failure instanceof ExecutionException)
+                && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        return failure;
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            Throwable cause = unwrap(ex);
+            if (cause instanceof IOException io) {
+                throw new UncheckedIOException(io);
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw ex;
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+            // the connection is discarded either way
+        }
+    }
+
+    @FunctionalInterface
+    private interface ApiCall<T> {
+        CompletableFuture<T> send() throws ApiException;
+    }
+
+    private static final class HedgeState {
+        private boolean hedgeSent;
+        private boolean primaryFailed;
+        private int failures;
+    }
+
+    public static final class Builder {
+
+        private final String baseUri;
+        private Duration connectTimeout = Duration.ofSeconds(2);
+        private Duration readTimeout = Duration.ofSeconds(5);
+        private int maxRetries = 2;
+        private Duration initialBackoff = Duration.ofMillis(50);
+        private Duration maxBackoff = Duration.ofSeconds(1);
+        private Duration hedgeDelay = Duration.ofMillis(100);
+        private double retryBudgetRatio = 0.1;
+        private int retryBudgetTokens = 10;
+        private MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+        private Builder(String baseUri) {
+            this.baseUri = Objects.requireNonNull(baseUri, "baseUri");
+        }
+
+        public Builder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        public Builder readTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        public Builder maxRetries(int maxRetries) {
+            if (maxRetries < 0) {
+                throw new IllegalArgumentException("maxRetries must not be negative");
+            }
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        public Builder backoff(Duration initialBackoff, Duration maxBackoff) {
+            this.initialBackoff = initialBackoff;
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        /**
+         * Delay after which a read still outstanding is sent a second time;
+         * {@link Duration#ZERO} disables hedging.
+         */
+        public Builder hedgeDelay(Duration hedgeDelay) {
+            this.hedgeDelay = hedgeDelay;
+            return this;
+        }
+
+        /**
+         * Retries and hedges allowed per call, on average, once the burst of
+         * {@code maxTokens} is used up.
+         */
+        public Builder retryBudget(double ratio, int maxTokens) {
+            if (ratio < 0 || maxTokens < 0) {
+                throw new IllegalArgumentException("Retry budget ratio and tokens must not be negative");
+            }
+            this.retryBudgetRatio = ratio;
+            this.retryBudgetTokens = maxTokens;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public BlogUserClient build() {
+            return new BlogUserClient(this);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.codehacks.contract.client;
+
+/**
+ * Token bucket shared by the retries and hedges of one {@link BlogUserClient}.
+ * Every call deposits {@code ratio} tokens, up to {@code maxTokens}, and every
+ * retry or hedge withdraws one, so once the bucket is drained the extra
+ * requests sent are capped at {@code ratio} of the calls made. The bucket
+ * starts full, which lets a client with little traffic still retry.
+ */
+final class RetryBudget {
+
+    private final double ratio;
+    private final double maxTokens;
+    private double tokens;
+
+    RetryBudget(double ratio, int maxTokens) {
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+        this.tokens = maxTokens;
+    }
+
+    synchronized void deposit() {
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    synchronized boolean tryWithdraw() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+}
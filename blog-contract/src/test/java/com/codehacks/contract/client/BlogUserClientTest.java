@@ -0,0 +1,201 @@
+package com.codehacks.contract.client;
+
+import com.codehacks.contract.invoker.ApiException;
+import com.codehacks.contract.model.UserRequest;
+import com.codehacks.contract.model.UserResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BlogUserClientTest {
+
+    private static final String USER_JSON =
+            "{\"id\":%d,\"username\":\"user%d\",\"email\":\"user%d@email.com\",\"createdAt\":\"2025-01-01T10:00:00\"}";
+
+    private HttpServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private BlogUserClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        meterRegistry = new SimpleMeterRegistry();
+        client = BlogUserClient.builder("http://localhost:" + server.getAddress().getPort())
+                .maxRetries(2)
+                .backoff(Duration.ofMillis(1), Duration.ofMillis(5))
+                .hedgeDelay(Duration.ZERO)
+                .meterRegistry(meterRegistry)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void getUserById_shouldRetryUnavailableResponses() {
+        AtomicInteger calls = new AtomicInteger();
+        server.createContext("/api/v1/users/1", exchange ->
+                respond(exchange, calls.incrementAndGet() < 3 ? 503 : 200, user(1)));
+
+        UserResponse user = client.getUserById(1).join();
+
+        assertThat(user.getUsername()).isEqualTo("user1");
+        assertThat(calls).hasValue(3);
+        assertThat(meterRegistry.counter("blog.client.retries", "operation", "getUserById").count()).isEqualTo(2);
+        assertThat(meterRegistry.timer("blog.client.requests", "operation", "getUserById", "outcome", "SUCCESS").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void getUserById_shouldGiveUpAfterMaxRetries() {
+        AtomicInteger calls = new AtomicInteger();
+        server.createContext("/api/v1/users/1", exchange -> {
+            calls.incrementAndGet();
+            respond(exchange, 503, "");
+        });
+
+        assertThatThrownBy(() -> client.getUserById(1).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(ApiException.class);
+        assertThat(calls).hasValue(3);
+        assertThat(meterRegistry.timer("blog.client.requests", "operation", "getUserById", "outcome", "SERVER_ERROR").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void getUserById_shouldStopRetryingOnceTheBudgetIsSpent() {
+        AtomicInteger calls = new AtomicInteger();
+        server.createContext("/api/v1/users/1", exchange -> {
+            calls.incrementAndGet();
+            respond(exchange, 503, "");
+        });
+        BlogUserClient budgeted = BlogUserClient.builder("http://localhost:" + server.getAddress().getPort())
+                .maxRetries(2)
+                .backoff(Duration.ofMillis(1), Duration.ofMillis(5))
+                .hedgeDelay(Duration.ZERO)
+                .retryBudget(0, 1)
+                .meterRegistry(meterRegistry)
+                .build();
+
+        assertThatThrownBy(() -> budgeted.getUserById(1).join()).hasCauseInstanceOf(ApiException.class);
+        assertThatThrownBy(() -> budgeted.getUserById(1).join()).hasCauseInstanceOf(ApiException.class);
+
+        assertThat(calls).hasValue(3);
+        assertThat(meterRegistry.counter("blog.client.retries", "operation", "getUserById").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("blog.client.budget_exhausted", "operation", "getUserById").count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void getUserById_shouldNotRetryClientErrors() {
+        AtomicInteger calls = new AtomicInteger();
+        server.createContext("/api/v1/users/1", exchange -> {
+            calls.incrementAndGet();
+            respond(exchange, 404, "");
+        });
+
+        assertThatThrownBy(() -> client.getUserById(1).join())
+                .hasCauseInstanceOf(ApiException.class);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void createUser_shouldNotRetryOnceTheRequestWasSent() {
+        AtomicInteger calls = new AtomicInteger();
+        server.createContext("/api/v1/users", exchange -> {
+            calls.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            respond(exchange, 503, "");
+        });
+
+        assertThatThrownBy(() -> client.createUser(new UserRequest().username("new").email("new@email.com").password("secret")).join())
+                .hasCauseInstanceOf(ApiException.class);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void getUserById_shouldAnswerFromHedgeWhenFirstAttemptIsSlow() {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        server.createContext("/api/v1/users/1", exchange -> {
+            if (calls.incrementAndGet() == 1) {
+                await(release);
+            }
+            respond(exchange, 200, user(1));
+        });
+        BlogUserClient hedging = BlogUserClient.builder("http://localhost:" + server.getAddress().getPort())
+                .hedgeDelay(Duration.ofMillis(20))
+                .meterRegistry(meterRegistry)
+                .build();
+
+        try {
+            UserResponse user = hedging.getUserById(1).orTimeout(2, TimeUnit.SECONDS).join();
+
+            assertThat(user.getId()).isEqualTo(1L);
+            assertThat(calls).hasValue(2);
+            assertThat(meterRegistry.counter("blog.client.hedges", "operation", "getUserById").count()).isEqualTo(1);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void streamAllUsers_shouldDecodeEveryElement() {
+        String body = IntStream.rangeClosed(1, 500).mapToObj(BlogUserClientTest::user)
+                .collect(Collectors.joining(",", "[", "]"));
+        server.createContext("/api/v1/users", exchange -> respond(exchange, 200, body));
+
+        List<Long> ids;
+        try (Stream<UserResponse> users = client.streamAllUsers()) {
+            ids = users.map(UserResponse::getId).toList();
+        }
+
+        assertThat(ids).hasSize(500).startsWith(1L, 2L).endsWith(500L);
+    }
+
+    private static String user(int id) {
+        return USER_JSON.formatted(id, id, id);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
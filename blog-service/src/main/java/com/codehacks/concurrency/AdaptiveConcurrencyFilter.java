@@ -0,0 +1,69 @@
+package com.codehacks.concurrency;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Sheds load before it queues up: a request whose route class is at its
+ * concurrency limit, or that would take capacity reserved for another route
+ * class, is rejected straight away with 503 instead of waiting for a worker
+ * thread and timing out. Only successful, redirected and failed (5xx)
+ * responses feed the latency samples behind the adaptive limits.
+ */
+class AdaptiveConcurrencyFilter extends OncePerRequestFilter {
+
+    private final Map<RouteClass, ConcurrencyLimiter> limiters;
+    private final PartitionedCapacity capacity;
+
+    AdaptiveConcurrencyFilter(Map<RouteClass, ConcurrencyLimiter> limiters, PartitionedCapacity capacity) {
+        this.limiters = limiters;
+        this.capacity = capacity;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        RouteClass routeClass = RouteClass.of(request);
+        ConcurrencyLimiter limiter = limiters.get(routeClass);
+        if (!limiter.tryAcquire()) {
+            reject(response);
+            return;
+        }
+        if (!capacity.tryAcquire(routeClass)) {
+            limiter.cancel();
+            reject(response);
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        int status = HttpStatus.INTERNAL_SERVER_ERROR.value();
+        try {
+            chain.doFilter(request, response);
+            status = response.getStatus();
+        } finally {
+            capacity.release(routeClass);
+            HttpStatusCode outcome = HttpStatusCode.valueOf(status);
+            // Client errors are mostly turned away (e.g. by Spring Security) before doing
+            // any real work; sampling them would pull the no-load RTT down and the limit with it.
+            if (request.isAsyncStarted() || outcome.is4xxClientError()) {
+                limiter.releaseWithoutSample();
+            } else {
+                limiter.release(System.nanoTime() - startedAt, outcome.is5xxServerError());
+            }
+        }
+    }
+
+    private static void reject(HttpServletResponse response) {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+    }
+}
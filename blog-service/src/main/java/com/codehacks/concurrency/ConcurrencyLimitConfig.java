@@ -0,0 +1,66 @@
+package com.codehacks.concurrency;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+@Configuration
+@ConditionalOnProperty(name = "blog.concurrency-limit.enabled", havingValue = "true", matchIfMissing = true)
+class ConcurrencyLimitConfig {
+
+    @Bean
+    FilterRegistrationBean<AdaptiveConcurrencyFilter> adaptiveConcurrencyFilter(
+            MeterRegistry meterRegistry,
+            @Value("${blog.concurrency-limit.read.initial:50}") int readInitial,
+            @Value("${blog.concurrency-limit.read.min:10}") int readMin,
+            @Value("${blog.concurrency-limit.read.max:200}") int readMax,
+            @Value("${blog.concurrency-limit.mutation.initial:10}") int mutationInitial,
+            @Value("${blog.concurrency-limit.mutation.min:2}") int mutationMin,
+            @Value("${blog.concurrency-limit.mutation.max:100}") int mutationMax,
+            @Value("${blog.concurrency-limit.capacity:${server.tomcat.threads.max:200}}") int capacity,
+            @Value("${blog.concurrency-limit.read.reserved-share:0.5}") double readReservedShare,
+            @Value("${blog.concurrency-limit.mutation.reserved-share:0.1}") double mutationReservedShare) {
+        Map<RouteClass, ConcurrencyLimiter> limiters = new EnumMap<>(RouteClass.class);
+        limiters.put(RouteClass.READ, new ConcurrencyLimiter(new VegasLimit(readInitial, readMin, readMax)));
+        limiters.put(RouteClass.MUTATION, new ConcurrencyLimiter(new VegasLimit(mutationInitial, mutationMin, mutationMax)));
+        limiters.forEach((routeClass, limiter) -> bindMetrics(meterRegistry, routeClass, limiter));
+        PartitionedCapacity sharedCapacity = new PartitionedCapacity(capacity,
+                Map.of(RouteClass.READ, readReservedShare, RouteClass.MUTATION, mutationReservedShare));
+        Gauge.builder("blog.concurrency.shared.in_flight", sharedCapacity, PartitionedCapacity::getInFlight)
+                .description("Requests in flight across all route classes")
+                .register(meterRegistry);
+
+        FilterRegistrationBean<AdaptiveConcurrencyFilter> registration =
+                new FilterRegistrationBean<>(new AdaptiveConcurrencyFilter(limiters, sharedCapacity));
+        registration.addUrlPatterns("/api/*");
+        // Ahead of the security filter chain so shed requests cost as little as possible.
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    private static void bindMetrics(MeterRegistry registry, RouteClass routeClass, ConcurrencyLimiter limiter) {
+        String route = routeClass.name().toLowerCase(Locale.ROOT);
+        Gauge.builder("blog.concurrency.limit", limiter, ConcurrencyLimiter::getLimit)
+                .tag("route", route)
+                .description("Current adaptive concurrency limit")
+                .register(registry);
+        Gauge.builder("blog.concurrency.in_flight", limiter, ConcurrencyLimiter::getInFlight)
+                .tag("route", route)
+                .description("Requests currently holding a concurrency permit")
+                .register(registry);
+        FunctionCounter.builder("blog.concurrency.rejected", limiter, ConcurrencyLimiter::getRejected)
+                .tag("route", route)
+                .description("Requests rejected with 503 because the limit was reached")
+                .register(registry);
+    }
+}
@@ -0,0 +1,66 @@
+package com.codehacks.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admits requests while fewer than the adaptive limit are in flight and feeds
+ * their latency back into the limit.
+ */
+class ConcurrencyLimiter {
+
+    private final VegasLimit limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    ConcurrencyLimiter(VegasLimit limit) {
+        this.limit = limit;
+    }
+
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.getLimit()) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void release(long rttNanos, boolean dropped) {
+        int current = inFlight.getAndDecrement();
+        limit.onSample(rttNanos, current, dropped);
+    }
+
+    /**
+     * Releases a request whose latency should not be sampled, e.g. one that
+     * went asynchronous and only held a thread until its handler returned.
+     */
+    void releaseWithoutSample() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Hands back a permit for a request that was shed after all, e.g. because
+     * the shared capacity was exhausted. It is counted as rejected.
+     */
+    void cancel() {
+        inFlight.decrementAndGet();
+        rejected.increment();
+    }
+
+    int getLimit() {
+        return limit.getLimit();
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,55 @@
+package com.codehacks.concurrency;
+
+import java.util.Map;
+
+/**
+ * Server-wide cap on requests in flight, shared by all route classes and
+ * partitioned between them. Each route class has a reserved share of the
+ * capacity that the other classes cannot borrow, so a flood of mutations that
+ * their own adaptive limit has not caught up with yet still leaves room for
+ * reads. Capacity outside the reservations goes to whichever class asks first.
+ */
+class PartitionedCapacity {
+
+    private final int capacity;
+    private final int[] reserved = new int[RouteClass.values().length];
+    private final int[] inFlight = new int[RouteClass.values().length];
+    private int total;
+
+    PartitionedCapacity(int capacity, Map<RouteClass, Double> reservedShares) {
+        double shares = reservedShares.values().stream().mapToDouble(Double::doubleValue).sum();
+        if (capacity < 1 || shares > 1 || reservedShares.values().stream().anyMatch(share -> share < 0)) {
+            throw new IllegalArgumentException("Capacity must be positive and reserved shares must add up to at most 1");
+        }
+        this.capacity = capacity;
+        reservedShares.forEach((routeClass, share) -> reserved[routeClass.ordinal()] = (int) (capacity * share));
+    }
+
+    synchronized boolean tryAcquire(RouteClass routeClass) {
+        int heldBack = 0;
+        for (RouteClass other : RouteClass.values()) {
+            if (other != routeClass) {
+                heldBack += Math.max(0, reserved[other.ordinal()] - inFlight[other.ordinal()]);
+            }
+        }
+        if (total + heldBack >= capacity) {
+            return false;
+        }
+        inFlight[routeClass.ordinal()]++;
+        total++;
+        return true;
+    }
+
+    synchronized void release(RouteClass routeClass) {
+        inFlight[routeClass.ordinal()]--;
+        total--;
+    }
+
+    synchronized int getInFlight() {
+        return total;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+}
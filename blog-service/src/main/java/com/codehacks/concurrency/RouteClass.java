@@ -0,0 +1,29 @@
+package com.codehacks.concurrency;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Groups API requests that have similar cost so each group gets its own
+ * concurrency limit. Mutations hash passwords and write to the database; reads
+ * must not queue up behind them.
+ */
+enum RouteClass {
+
+    MUTATION,
+    READ;
+
+    // Batch lookups are POSTed only because the id list can be too long for a URL.
+    private static final String BATCH_READ_PATH = "/api/v1/users/batch";
+
+    static RouteClass of(HttpServletRequest request) {
+        return switch (request.getMethod()) {
+            case "GET", "HEAD", "OPTIONS" -> READ;
+            case "POST" -> BATCH_READ_PATH.equals(pathOf(request)) ? READ : MUTATION;
+            default -> MUTATION;
+        };
+    }
+
+    private static String pathOf(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
@@ -0,0 +1,97 @@
+package com.codehacks.concurrency;
+
+/**
+ * Adaptive concurrency limit modelled on TCP Vegas.
+ * <p>
+ * The lowest latency seen is taken as the no-load round trip time. Each
+ * sample estimates how many requests are queueing ({@code limit * (1 - rttNoLoad / rtt)}):
+ * the limit grows while that queue is short and shrinks once it gets long.
+ * Samples are averaged over windows of {@value #WINDOW_SIZE} requests, since
+ * single requests that happen not to wait would otherwise look like an idle
+ * system. The no-load baseline is re-probed periodically so it can follow real
+ * changes in service time.
+ */
+class VegasLimit {
+
+    static final int WINDOW_SIZE = 25;
+    private static final int PROBE_MULTIPLIER = 30;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private volatile double limit;
+    private long rttNoLoad;
+    private long samples;
+    private long nextProbe;
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private boolean windowDropped;
+
+    VegasLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        this.nextProbe = probeInterval();
+    }
+
+    int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        windowRttSum += rttNanos;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlight);
+        windowDropped |= dropped;
+        if (++windowSamples < WINDOW_SIZE) {
+            return;
+        }
+        update(windowRttSum / windowSamples, windowMaxInFlight, windowDropped);
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+        windowDropped = false;
+    }
+
+    private void update(long rttNanos, int inFlight, boolean dropped) {
+        if (++samples >= nextProbe) {
+            rttNoLoad = rttNanos;
+            nextProbe = samples + probeInterval();
+            return;
+        }
+        if (rttNoLoad == 0 || rttNanos < rttNoLoad) {
+            rttNoLoad = rttNanos;
+            return;
+        }
+
+        double step = Math.max(1, Math.log10(limit));
+        double newLimit;
+        if (dropped) {
+            newLimit = limit - step;
+        } else if (inFlight * 2 < limit) {
+            // Not using the current limit, so latency says nothing about it.
+            return;
+        } else {
+            double queue = Math.ceil(limit * (1 - (double) rttNoLoad / rttNanos));
+            if (queue <= step) {
+                newLimit = limit + 6 * step;
+            } else if (queue < 3 * step) {
+                newLimit = limit + step;
+            } else if (queue > 6 * step) {
+                newLimit = limit - step;
+            } else {
+                return;
+            }
+        }
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    private long probeInterval() {
+        return PROBE_MULTIPLIER + (long) Math.sqrt(limit);
+    }
+}
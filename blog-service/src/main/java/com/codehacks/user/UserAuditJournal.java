@@ -0,0 +1,296 @@
+package com.codehacks.user;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only journal of user mutations kept outside the database, so that
+ * auditing does not add a write to the mutation's transaction.
+ * <p>
+ * Mutations only enqueue an entry. A single writer thread drains the queue in
+ * batches, copies each batch into the active memory-mapped segment and forces
+ * it to disk once per batch, so concurrent mutations share one fsync. Segments
+ * are allocated at full size up front and rolled over when full; segments last
+ * modified longer ago than the retention period are deleted on rollover and
+ * by a periodic check on the writer thread.
+ * <p>
+ * Auditing never fails a mutation: if the queue stays full for the enqueue
+ * timeout, or the journal is closed, the entry is dropped and counted in
+ * {@code blog.audit.dropped}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "blog.audit", name = "enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+class UserAuditJournal {
+
+    private static final int MAX_BATCH_SIZE = 1024;
+    private static final long POLL_MILLIS = 100;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final Duration retention;
+    private final BlockingQueue<Entry> queue;
+    private final long enqueueTimeoutNanos;
+    private final long retentionCheckNanos;
+    private final AtomicLong dropped = new AtomicLong();
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final UserAuditReader reader;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Only touched by the writer thread once it has started.
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private int position;
+    private long nextSequence;
+    private long nextRetentionCheck;
+
+    UserAuditJournal(@Value("${blog.audit.directory:data/audit}") Path directory,
+                     @Value("${blog.audit.segment-size:64MB}") DataSize segmentSize,
+                     @Value("${blog.audit.retention:30d}") Duration retention,
+                     @Value("${blog.audit.queue-capacity:65536}") int queueCapacity,
+                     @Value("${blog.audit.enqueue-timeout:10ms}") Duration enqueueTimeout,
+                     @Value("${blog.audit.retention-check-interval:1h}") Duration retentionCheckInterval,
+                     MeterRegistry meterRegistry) throws IOException {
+        if (segmentSize.toBytes() < UserAuditRecord.SIZE || segmentSize.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Audit segment size must be between 32 bytes and 2GB");
+        }
+        this.directory = directory;
+        this.segmentSize = (int) (segmentSize.toBytes() - segmentSize.toBytes() % UserAuditRecord.SIZE);
+        this.retention = retention;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.enqueueTimeoutNanos = enqueueTimeout.toNanos();
+        this.retentionCheckNanos = retentionCheckInterval.toNanos();
+        this.reader = new UserAuditReader(directory);
+
+        Files.createDirectories(directory);
+        this.lockChannel = FileChannel.open(directory.resolve("journal.lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.lock = tryLock(lockChannel, directory);
+        recover();
+        applyRetention();
+        this.nextRetentionCheck = System.nanoTime() + retentionCheckNanos;
+        FunctionCounter.builder("blog.audit.dropped", dropped, AtomicLong::get)
+                .description("Audit entries dropped because the journal was full or closed")
+                .register(meterRegistry);
+
+        this.writer = new Thread(this::drain, "user-audit-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @EventListener
+    public void onUserChange(UserChangeEvent event) {
+        Entry entry = new Entry(event.type(), event.userId(), event.occurredAt(), null);
+        try {
+            if (running && queue.offer(entry, enqueueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        long total = dropped.incrementAndGet();
+        if (total == 1 || total % 1000 == 0) {
+            log.warn("Dropped audit entry for user {} ({} dropped so far); journal {}",
+                    event.userId(), total, running ? "is falling behind" : "is closed");
+        }
+    }
+
+    /**
+     * Waits until every entry enqueued before this call has been forced to disk.
+     */
+    void flush() {
+        if (!running) {
+            throw new IllegalStateException("Audit journal is closed");
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        try {
+            queue.put(new Entry(null, 0, null, done));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while flushing the audit journal", ex);
+        }
+        done.join();
+    }
+
+    List<UserAuditRecord> findByUserId(long userId) {
+        return reader.findByUserId(userId);
+    }
+
+    @PreDestroy
+    void close() throws IOException, InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (channel != null) {
+            segment.force();
+            channel.close();
+        }
+        lock.release();
+        lockChannel.close();
+    }
+
+    private void drain() {
+        List<Entry> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (System.nanoTime() - nextRetentionCheck >= 0) {
+                    applyRetention();
+                    nextRetentionCheck = System.nanoTime() + retentionCheckNanos;
+                }
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                append(batch);
+                batch.forEach(entry -> entry.complete(null));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException ex) {
+                log.error("Failed to write {} audit entries to {}", batch.size(), directory, ex);
+                batch.forEach(entry -> entry.complete(ex));
+            }
+            batch.clear();
+        }
+    }
+
+    private void append(List<Entry> batch) throws IOException {
+        int start = position;
+        for (Entry entry : batch) {
+            if (entry.isBarrier()) {
+                continue;
+            }
+            if (position + UserAuditRecord.SIZE > segmentSize) {
+                segment.force(start, position - start);
+                roll();
+                start = 0;
+            }
+            UserAuditRecord.write(segment, position, nextSequence++, entry.type(), entry.userId(), entry.occurredAt());
+            position += UserAuditRecord.SIZE;
+        }
+        if (position > start) {
+            segment.force(start, position - start);
+        }
+    }
+
+    /**
+     * Reopens the newest segment and positions the writer after its last
+     * complete record, dropping a record torn by a crash.
+     */
+    private void recover() throws IOException {
+        List<Path> segments = UserAuditReader.segments(directory);
+        if (segments.isEmpty()) {
+            open(1);
+            return;
+        }
+        Path newest = segments.get(segments.size() - 1);
+        channel = FileChannel.open(newest, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int size = (int) Math.max(channel.size() - channel.size() % UserAuditRecord.SIZE, segmentSize);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        String name = newest.getFileName().toString();
+        nextSequence = Long.parseLong(name.replaceAll("\\D", ""));
+        position = 0;
+        while (position + UserAuditRecord.SIZE <= size && UserAuditRecord.isValid(segment, position)) {
+            nextSequence = UserAuditRecord.sequenceAt(segment, position) + 1;
+            position += UserAuditRecord.SIZE;
+        }
+        log.info("Audit journal resumed at sequence {} in {}", nextSequence, newest);
+        if (position + UserAuditRecord.SIZE > size) {
+            roll();
+        }
+    }
+
+    private void roll() throws IOException {
+        segment.force();
+        channel.close();
+        open(nextSequence);
+        applyRetention();
+    }
+
+    /**
+     * Creates the segment starting at {@code baseSequence}. Mapping it read-write
+     * extends the file to the full segment size, so later appends never grow it.
+     */
+    private void open(long baseSequence) throws IOException {
+        Path path = directory.resolve(UserAuditReader.segmentName(baseSequence));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        position = 0;
+        nextSequence = baseSequence;
+    }
+
+    private void applyRetention() {
+        List<Path> segments = UserAuditReader.segments(directory);
+        Instant cutoff = Instant.now().minus(retention);
+        for (Path path : segments.subList(0, Math.max(0, segments.size() - 1))) {
+            try {
+                if (Files.getLastModifiedTime(path).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(path);
+                    log.info("Deleted audit segment {} past its {} retention", path, retention);
+                }
+            } catch (IOException ex) {
+                log.warn("Could not apply retention to audit segment {}", path, ex);
+            }
+        }
+    }
+
+    private static FileLock tryLock(FileChannel lockChannel, Path directory) throws IOException {
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException ex) {
+            lock = null;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IllegalStateException("Audit journal " + directory + " is already open by another writer");
+        }
+        return lock;
+    }
+
+    private record Entry(UserChangeEvent.Type type, long userId, Instant occurredAt, CompletableFuture<Void> barrier) {
+
+        boolean isBarrier() {
+            return barrier != null;
+        }
+
+        void complete(Throwable failure) {
+            if (barrier == null) {
+                return;
+            }
+            if (failure == null) {
+                barrier.complete(null);
+            } else {
+                barrier.completeExceptionally(failure);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.codehacks.user;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Reads the segments of a user audit journal. Segments are mapped read-only and
+ * scanned in place, so only matching records are materialized on the heap.
+ * Reading is safe while the journal is being written; a record still in flight
+ * simply ends the scan of the active segment.
+ */
+class UserAuditReader {
+
+    private static final String SEGMENT_PREFIX = "users-audit-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+
+    UserAuditReader(Path directory) {
+        this.directory = directory;
+    }
+
+    List<UserAuditRecord> findByUserId(long userId) {
+        List<UserAuditRecord> records = new ArrayList<>();
+        scan(userId, records::add);
+        return records;
+    }
+
+    /**
+     * Passes every record of {@code userId} to {@code action}, oldest first.
+     */
+    void scan(long userId, Consumer<UserAuditRecord> action) {
+        for (Path segment : segments(directory)) {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (NoSuchFileException ex) {
+                continue; // removed by retention since it was listed
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            int limit = buffer.capacity() - buffer.capacity() % UserAuditRecord.SIZE;
+            for (int offset = 0; offset < limit; offset += UserAuditRecord.SIZE) {
+                if (!UserAuditRecord.isValid(buffer, offset)) {
+                    break;
+                }
+                if (UserAuditRecord.userIdAt(buffer, offset) == userId) {
+                    action.accept(UserAuditRecord.read(buffer, offset));
+                }
+            }
+        }
+    }
+
+    /**
+     * Lists the segments of the journal in {@code directory} in write order.
+     */
+    static List<Path> segments(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Name of the segment whose first record has {@code baseSequence}; zero
+     * padded so that names sort in sequence order.
+     */
+    static String segmentName(long baseSequence) {
+        return SEGMENT_PREFIX + String.format("%020d", baseSequence) + SEGMENT_SUFFIX;
+    }
+}
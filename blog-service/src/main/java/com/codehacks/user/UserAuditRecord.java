@@ -0,0 +1,68 @@
+package com.codehacks.user;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * One entry of the user audit journal.
+ * <p>
+ * Entries are stored as fixed-size 32 byte slots: a CRC32C of the remaining
+ * bytes, the change type, the journal sequence, the time in epoch microseconds
+ * and the user id. A slot whose checksum does not match, including the zeroed
+ * slots of a pre-allocated segment, marks the end of the written data.
+ */
+record UserAuditRecord(long sequence, UserChangeEvent.Type type, long userId, Instant occurredAt) {
+
+    static final int SIZE = 32;
+
+    private static final int TYPE_OFFSET = 4;
+    private static final int SEQUENCE_OFFSET = 8;
+    private static final int TIMESTAMP_OFFSET = 16;
+    private static final int USER_ID_OFFSET = 24;
+    private static final byte FORMAT_VERSION = 1;
+    private static final UserChangeEvent.Type[] TYPES = UserChangeEvent.Type.values();
+
+    static void write(ByteBuffer buffer, int offset, long sequence, UserChangeEvent.Type type, long userId,
+                      Instant occurredAt) {
+        buffer.put(offset + TYPE_OFFSET, (byte) (type.ordinal() + 1));
+        buffer.put(offset + TYPE_OFFSET + 1, FORMAT_VERSION);
+        buffer.putShort(offset + TYPE_OFFSET + 2, (short) 0);
+        buffer.putLong(offset + SEQUENCE_OFFSET, sequence);
+        buffer.putLong(offset + TIMESTAMP_OFFSET, ChronoUnit.MICROS.between(Instant.EPOCH, occurredAt));
+        buffer.putLong(offset + USER_ID_OFFSET, userId);
+        buffer.putInt(offset, checksum(buffer, offset));
+    }
+
+    /**
+     * Returns whether the slot at {@code offset} holds a complete record.
+     */
+    static boolean isValid(ByteBuffer buffer, int offset) {
+        int type = buffer.get(offset + TYPE_OFFSET);
+        return type > 0 && type <= TYPES.length && buffer.getInt(offset) == checksum(buffer, offset);
+    }
+
+    static long userIdAt(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + USER_ID_OFFSET);
+    }
+
+    static long sequenceAt(ByteBuffer buffer, int offset) {
+        return buffer.getLong(offset + SEQUENCE_OFFSET);
+    }
+
+    static UserAuditRecord read(ByteBuffer buffer, int offset) {
+        long micros = buffer.getLong(offset + TIMESTAMP_OFFSET);
+        return new UserAuditRecord(
+                sequenceAt(buffer, offset),
+                TYPES[buffer.get(offset + TYPE_OFFSET) - 1],
+                userIdAt(buffer, offset),
+                Instant.EPOCH.plus(micros, ChronoUnit.MICROS));
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(offset + TYPE_OFFSET, SIZE - TYPE_OFFSET));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,5 @@
+package com.codehacks.user;
+
+import java.util.List;
+
+record UserBatchRequest(List<Long> ids) {}
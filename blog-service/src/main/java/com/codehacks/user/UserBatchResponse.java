@@ -0,0 +1,5 @@
+package com.codehacks.user;
+
+import java.util.List;
+
+record UserBatchResponse(List<UserResponse> users, List<Long> missingIds) {}
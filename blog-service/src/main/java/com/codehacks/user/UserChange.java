@@ -0,0 +1,11 @@
+package com.codehacks.user;
+
+record UserChange(String epoch, long sequence, UserChangeEvent event) {
+
+    /**
+     * SSE event id a client sends back as {@code Last-Event-ID} to resume.
+     */
+    String id() {
+        return epoch + ":" + sequence;
+    }
+}
@@ -0,0 +1,61 @@
+package com.codehacks.user;
+
+import lombok.AllArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/v1/users")
+@AllArgsConstructor
+class UserChangeController {
+
+    private final UserChangeFeed userChangeFeed;
+
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(required = false) String since,
+                                    @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        SseEmitter emitter = new SseEmitter(0L);
+        UserChangeFeed.Subscription subscription =
+                userChangeFeed.subscribe(new SseUserChangeSink(emitter), since != null ? since : lastEventId);
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(ex -> subscription.cancel());
+        return emitter;
+    }
+
+    private record SseUserChangeSink(SseEmitter emitter) implements UserChangeSink {
+
+        @Override
+        public void send(UserChange change) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(change.id())
+                    .name(change.event().type().name().toLowerCase())
+                    .data(change.event(), MediaType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void reset(String eventId) throws IOException {
+            emitter.send(SseEmitter.event()
+                    .id(eventId)
+                    .name("reset")
+                    .data(eventId));
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+        }
+
+        @Override
+        public void close() {
+            emitter.complete();
+        }
+    }
+}
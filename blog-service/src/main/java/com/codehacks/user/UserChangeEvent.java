@@ -0,0 +1,20 @@
+package com.codehacks.user;
+
+import java.time.Instant;
+
+record UserChangeEvent(Type type, Long userId, UserResponse user, Instant occurredAt) {
+
+    enum Type { CREATED, UPDATED, DELETED }
+
+    static UserChangeEvent created(UserResponse user) {
+        return new UserChangeEvent(Type.CREATED, user.id(), user, Instant.now());
+    }
+
+    static UserChangeEvent updated(UserResponse user) {
+        return new UserChangeEvent(Type.UPDATED, user.id(), user, Instant.now());
+    }
+
+    static UserChangeEvent deleted(Long userId) {
+        return new UserChangeEvent(Type.DELETED, userId, null, Instant.now());
+    }
+}
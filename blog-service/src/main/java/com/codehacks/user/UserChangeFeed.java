@@ -0,0 +1,516 @@
+package com.codehacks.user;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-process feed of user mutations backed by a fixed-size ring buffer.
+ * <p>
+ * Changes are stored once and every subscriber keeps its own read cursor into
+ * the ring, so fan-out costs one wake-up per subscriber rather than a copy of
+ * every change. Drain threads only move changes from the ring into a small
+ * bounded outbox per subscriber and never touch the transport; blocking writes
+ * happen on a separate writer pool, and disconnects on their own threads, since
+ * closing an SSE connection waits for a write in progress. A subscriber whose
+ * cursor falls more than {@code maxLag} changes behind, or whose transport stalls
+ * for longer than the send timeout, is disconnected and can resume later from
+ * the last event id it received. A stalled write keeps its thread until the
+ * socket times out, so the writer pool starts a replacement thread for it, up to
+ * doubling its size.
+ * <p>
+ * Event ids are {@code epoch:sequence}. Without the Redis relay, sequences are
+ * local to this node and restart on every boot, so each boot gets a new epoch.
+ * With the relay, Redis names the epoch and sequences within it have no gaps.
+ * Changes whose sequences follow on from each other form a segment; a relay
+ * message that skips sequences, or an epoch that changes, starts a new one.
+ * Subscribers crossing into a new segment are sent a reset, and a client only
+ * resumes where the change right after its last event id is still retained.
+ */
+@Component
+@Slf4j
+class UserChangeFeed {
+
+    private static final int DRAIN_BATCH_SIZE = 256;
+
+    private final AtomicReferenceArray<Slot> ring;
+    private final int capacity;
+    private final int maxLag;
+    private final long heartbeatNanos;
+    private final long sendTimeoutNanos;
+    private final int sendBuffer;
+    private final int writeThreads;
+    private final boolean relayed;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final ExecutorService drainExecutor;
+    private final ThreadPoolExecutor writeExecutor;
+    private final ExecutorService closeExecutor;
+    private final ScheduledExecutorService heartbeatScheduler;
+
+    private final Object appendLock = new Object();
+    private volatile long head = -1;
+    private volatile String epoch = newEpoch();
+    private long lastSequence;
+    private long segmentStart;
+    // Epoch named by the relay for the current segment; differs from epoch once rotated locally.
+    private String relayedEpoch;
+    private int replacedWriters;
+
+    UserChangeFeed(@Value("${blog.users.changes.buffer-size:4096}") int capacity,
+                   @Value("${blog.users.changes.max-lag:1024}") int maxLag,
+                   @Value("${blog.users.changes.heartbeat-interval:15s}") Duration heartbeatInterval,
+                   @Value("${blog.users.changes.send-timeout:10s}") Duration sendTimeout,
+                   @Value("${blog.users.changes.drain-threads:4}") int drainThreads,
+                   @Value("${blog.users.changes.write-threads:64}") int writeThreads,
+                   @Value("${blog.users.changes.send-buffer:64}") int sendBuffer,
+                   @Value("${blog.users.changes.redis-relay.enabled:false}") boolean relayed) {
+        if (maxLag > capacity) {
+            throw new IllegalArgumentException("Change feed max lag must not exceed its buffer size");
+        }
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.capacity = capacity;
+        this.maxLag = maxLag;
+        this.heartbeatNanos = heartbeatInterval.toNanos();
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.sendBuffer = sendBuffer;
+        this.writeThreads = writeThreads;
+        this.relayed = relayed;
+        this.drainExecutor = Executors.newFixedThreadPool(drainThreads, daemonThreads("user-change-feed-"));
+        this.writeExecutor = new ThreadPoolExecutor(writeThreads, writeThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), daemonThreads("user-change-writer-"));
+        this.closeExecutor = Executors.newCachedThreadPool(daemonThreads("user-change-close-"));
+        this.heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("user-change-heartbeat-"));
+        this.heartbeatScheduler.scheduleAtFixedRate(this::tick,
+                heartbeatNanos, heartbeatNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @EventListener
+    public void onUserChange(UserChangeEvent event) {
+        if (!relayed) {
+            append(event);
+        }
+    }
+
+    /**
+     * Appends a change sequenced by this feed and returns its sequence id.
+     */
+    long append(UserChangeEvent event) {
+        long sequence;
+        synchronized (appendLock) {
+            sequence = lastSequence + 1;
+            store(sequence, event, false);
+        }
+        signalAll();
+        return sequence;
+    }
+
+    /**
+     * Appends a change sequenced elsewhere, e.g. by the Redis relay shared by all
+     * nodes. A change that does not directly follow the previous one in the same
+     * epoch starts a new segment; if its sequence went backwards without the
+     * relay naming a new epoch, this feed rotates the epoch itself so that no
+     * event id is reused.
+     */
+    void accept(String sourceEpoch, long sequence, UserChangeEvent event) {
+        synchronized (appendLock) {
+            if (head >= 0 && sourceEpoch.equals(relayedEpoch)) {
+                if (sequence == lastSequence + 1) {
+                    store(sequence, event, false);
+                } else if (sequence > lastSequence) {
+                    log.warn("Relayed user changes {} to {} were lost; resetting subscribers",
+                            lastSequence + 1, sequence - 1);
+                    store(sequence, event, true);
+                } else {
+                    log.warn("Relayed sequence went back from {} to {} in epoch {}; rotating the epoch",
+                            lastSequence, sequence, sourceEpoch);
+                    epoch = sourceEpoch + "." + newEpoch();
+                    store(sequence, event, true);
+                }
+            } else {
+                relayedEpoch = sourceEpoch;
+                epoch = sourceEpoch;
+                store(sequence, event, true);
+            }
+        }
+        signalAll();
+    }
+
+    /**
+     * Subscribes {@code sink} to changes after {@code lastEventId}, or to new
+     * changes only when it is {@code null}.
+     */
+    Subscription subscribe(UserChangeSink sink, String lastEventId) {
+        Subscription subscription = new Subscription(sink);
+        long currentHead = head;
+        Slot current = currentHead < 0 ? null : read(currentHead);
+        Resume resume = lastEventId == null || lastEventId.isBlank()
+                ? new Resume(currentHead, current != null ? current.segmentStart() : 0)
+                : resumeAfter(lastEventId, currentHead);
+        if (resume == null) {
+            subscription.cursor = currentHead;
+            subscription.segmentStart = current != null ? current.segmentStart() : 0;
+            subscription.pendingReset = current != null ? current.change().id() : epoch + ":0";
+        } else {
+            subscription.cursor = resume.cursor();
+            subscription.segmentStart = resume.segmentStart();
+        }
+        subscriptions.add(subscription);
+        subscription.signal();
+        return subscription;
+    }
+
+    int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    String epoch() {
+        return epoch;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeatScheduler.shutdownNow();
+        subscriptions.forEach(Subscription::close);
+        drainExecutor.shutdownNow();
+        writeExecutor.shutdownNow();
+        closeExecutor.shutdown();
+    }
+
+    private void store(long sequence, UserChangeEvent event, boolean newSegment) {
+        long position = head + 1;
+        if (newSegment) {
+            segmentStart = position;
+        }
+        ring.set(index(position), new Slot(position, new UserChange(epoch, sequence, event), segmentStart));
+        lastSequence = sequence;
+        head = position;
+    }
+
+    private void signalAll() {
+        subscriptions.forEach(Subscription::signal);
+    }
+
+    private Slot read(long position) {
+        Slot slot = ring.get(index(position));
+        return slot != null && slot.position() == position ? slot : null;
+    }
+
+    /**
+     * Finds where to resume a client whose last event was {@code lastEventId}:
+     * right after the retained change with that id, or right before the
+     * retained change that directly follows it. Returns {@code null} when
+     * neither is retained and the client has to resync. Scans back from the
+     * newest change, since sequences only increase within one epoch.
+     */
+    private Resume resumeAfter(String lastEventId, long currentHead) {
+        int separator = lastEventId.lastIndexOf(':');
+        long sequence;
+        try {
+            sequence = Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+        String lastEpoch = lastEventId.substring(0, Math.max(0, separator));
+        if (currentHead < 0) {
+            return lastEpoch.equals(epoch) && sequence == 0 ? new Resume(-1, 0) : null;
+        }
+        boolean inEpoch = false;
+        for (long position = currentHead; position >= Math.max(0, currentHead - capacity + 1); position--) {
+            Slot slot = read(position);
+            if (slot == null) {
+                return null;
+            }
+            UserChange change = slot.change();
+            if (!change.epoch().equals(lastEpoch)) {
+                if (inEpoch) {
+                    return null;
+                }
+                continue;
+            }
+            inEpoch = true;
+            if (change.sequence() == sequence) {
+                return new Resume(position, slot.segmentStart());
+            }
+            if (change.sequence() == sequence + 1) {
+                return new Resume(position - 1, slot.segmentStart());
+            }
+            if (change.sequence() < sequence) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Starts an extra writer thread in place of one held by a stalled send.
+     */
+    private synchronized boolean replaceStalledWriter() {
+        if (replacedWriters >= writeThreads) {
+            return false;
+        }
+        replacedWriters++;
+        writeExecutor.setMaximumPoolSize(writeThreads + replacedWriters);
+        writeExecutor.setCorePoolSize(writeThreads + replacedWriters);
+        return true;
+    }
+
+    private synchronized void releaseReplacedWriter() {
+        replacedWriters--;
+        writeExecutor.setCorePoolSize(writeThreads + replacedWriters);
+        writeExecutor.setMaximumPoolSize(writeThreads + replacedWriters);
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        for (Subscription subscription : subscriptions) {
+            if (subscription.isStalled(now)) {
+                log.debug("Disconnecting change feed subscriber stalled for more than {} ms",
+                        TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+                subscription.close();
+            } else if (now - subscription.lastSentAt >= heartbeatNanos) {
+                subscription.heartbeatDue = true;
+                subscription.signal();
+            }
+        }
+    }
+
+    private int index(long position) {
+        return (int) (position % capacity);
+    }
+
+    private static String newEpoch() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private record Slot(long position, UserChange change, long segmentStart) {}
+
+    private record Resume(long cursor, long segmentStart) {}
+
+    final class Subscription {
+
+        private final UserChangeSink sink;
+        private final BlockingQueue<SinkWrite> outbox;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean writing = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final Object sendLock = new Object();
+        // Only advanced by the drain thread holding the scheduled flag.
+        private volatile long cursor;
+        private volatile long segmentStart;
+        private volatile String pendingReset;
+        private volatile boolean heartbeatDue;
+        private volatile long lastSentAt = System.nanoTime();
+        // Guarded by sendLock.
+        private long sendStartedAt;
+        private boolean writerReplaced;
+
+        private Subscription(UserChangeSink sink) {
+            this.sink = sink;
+            this.outbox = new ArrayBlockingQueue<>(sendBuffer);
+        }
+
+        /**
+         * Stops delivery after the client has gone away.
+         */
+        void cancel() {
+            if (closed.compareAndSet(false, true)) {
+                subscriptions.remove(this);
+                outbox.clear();
+            }
+        }
+
+        private void close() {
+            if (closed.compareAndSet(false, true)) {
+                subscriptions.remove(this);
+                outbox.clear();
+                try {
+                    closeExecutor.execute(this::closeSink);
+                } catch (RejectedExecutionException ex) {
+                    // shutting down; the container closes the connection
+                }
+            }
+        }
+
+        private void closeSink() {
+            try {
+                sink.close();
+            } catch (RuntimeException ex) {
+                log.debug("Failed to close change feed subscriber", ex);
+            }
+        }
+
+        /**
+         * Whether a send has been blocked for longer than the send timeout. The
+         * first time it is, the writer pool gets a thread in its place.
+         */
+        private boolean isStalled(long now) {
+            synchronized (sendLock) {
+                if (sendStartedAt == 0 || now - sendStartedAt <= sendTimeoutNanos) {
+                    return false;
+                }
+                if (!writerReplaced) {
+                    writerReplaced = replaceStalledWriter();
+                }
+                return true;
+            }
+        }
+
+        private void signal() {
+            if (closed.get() || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                drainExecutor.execute(this::drain);
+            } catch (RejectedExecutionException ex) {
+                scheduled.set(false);
+                close();
+            }
+        }
+
+        /**
+         * Moves changes from the ring into the outbox without blocking. A full
+         * outbox leaves the cursor behind, where the lag check catches it.
+         */
+        private void drain() {
+            boolean more = false;
+            try {
+                int moved = 0;
+                while (!closed.get() && moved < DRAIN_BATCH_SIZE) {
+                    String reset = pendingReset;
+                    if (reset != null) {
+                        if (!outbox.offer(() -> sink.reset(reset))) {
+                            break;
+                        }
+                        pendingReset = null;
+                    }
+                    if (cursor >= head) {
+                        break;
+                    }
+                    if (head - cursor > maxLag) {
+                        log.debug("Disconnecting change feed subscriber lagging {} changes behind", head - cursor);
+                        close();
+                        return;
+                    }
+                    Slot slot = read(cursor + 1);
+                    if (slot == null) {
+                        close();
+                        return;
+                    }
+                    if (slot.segmentStart() != segmentStart) {
+                        // Changes before this one were lost or belong to an earlier epoch.
+                        segmentStart = slot.segmentStart();
+                        pendingReset = slot.change().epoch() + ":" + (slot.change().sequence() - 1);
+                        continue;
+                    }
+                    UserChange change = slot.change();
+                    if (!outbox.offer(() -> sink.send(change))) {
+                        break;
+                    }
+                    cursor++;
+                    moved++;
+                }
+                more = moved == DRAIN_BATCH_SIZE;
+                if (heartbeatDue) {
+                    heartbeatDue = false;
+                    if (outbox.isEmpty() && !writing.get()) {
+                        outbox.offer(sink::heartbeat);
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+            }
+            flush();
+            // An append or heartbeat that signalled while this drain still held
+            // the scheduled flag was dropped, so check again for work left over.
+            boolean pending = (pendingReset != null || cursor < head) && outbox.remainingCapacity() > 0;
+            if (!closed.get() && (more || pending || heartbeatDue)) {
+                signal();
+            }
+        }
+
+        private void flush() {
+            if (closed.get() || outbox.isEmpty() || !writing.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                writeExecutor.execute(this::write);
+            } catch (RejectedExecutionException ex) {
+                writing.set(false);
+                close();
+            }
+        }
+
+        private void write() {
+            try {
+                SinkWrite next;
+                while (!closed.get() && (next = outbox.poll()) != null) {
+                    synchronized (sendLock) {
+                        sendStartedAt = System.nanoTime();
+                    }
+                    try {
+                        next.run();
+                    } finally {
+                        lastSentAt = System.nanoTime();
+                        sendFinished();
+                    }
+                }
+            } catch (IOException | RuntimeException ex) {
+                close();
+                return;
+            } finally {
+                writing.set(false);
+            }
+            if (!closed.get()) {
+                flush();
+                if (pendingReset != null || cursor < head) {
+                    signal();
+                }
+            }
+        }
+
+        private void sendFinished() {
+            synchronized (sendLock) {
+                sendStartedAt = 0;
+                if (writerReplaced) {
+                    writerReplaced = false;
+                    releaseReplacedWriter();
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface SinkWrite {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,108 @@
+package com.codehacks.user;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Shares one change feed between all nodes. Each node publishes its own
+ * mutations through Redis, which assigns the global sequence id, and every
+ * node (including the publisher) appends what it receives to its local feed.
+ * The epoch of those ids is kept in Redis next to the counter and replaced
+ * whenever the counter starts over, e.g. after Redis lost its data, so ids
+ * handed out before are never reused for other changes.
+ */
+@Component
+@ConditionalOnProperty(name = "blog.users.changes.redis-relay.enabled", havingValue = "true")
+@Slf4j
+class UserChangeRedisRelay implements MessageListener, InitializingBean, DisposableBean {
+
+    // INCR and PUBLISH run atomically so subscribers see sequence ids in order.
+    private static final RedisScript<Long> PUBLISH_SCRIPT = new DefaultRedisScript<>(
+            "local sequence = redis.call('INCR', KEYS[1]) "
+                    + "local epoch = redis.call('GET', KEYS[2]) "
+                    + "if sequence == 1 or not epoch then "
+                    + "epoch = ARGV[3] "
+                    + "redis.call('SET', KEYS[2], epoch) "
+                    + "end "
+                    + "redis.call('PUBLISH', ARGV[1], epoch .. ':' .. sequence .. ':' .. ARGV[2]) "
+                    + "return sequence",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final UserChangeFeed userChangeFeed;
+    private final RedisMessageListenerContainer listenerContainer = new RedisMessageListenerContainer();
+    private final String channel;
+    private final String sequenceKey;
+    private final String epochKey;
+
+    UserChangeRedisRelay(StringRedisTemplate redisTemplate,
+                         RedisConnectionFactory connectionFactory,
+                         ObjectMapper objectMapper,
+                         UserChangeFeed userChangeFeed,
+                         @Value("${blog.users.changes.redis-relay.channel:blog:users:changes}") String channel) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.userChangeFeed = userChangeFeed;
+        this.channel = channel;
+        this.sequenceKey = channel + ":sequence";
+        this.epochKey = channel + ":epoch";
+        this.listenerContainer.setConnectionFactory(connectionFactory);
+        this.listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        listenerContainer.destroy();
+    }
+
+    @EventListener
+    public void onUserChange(UserChangeEvent event) {
+        try {
+            redisTemplate.execute(PUBLISH_SCRIPT, List.of(sequenceKey, epochKey), channel,
+                    objectMapper.writeValueAsString(event), UUID.randomUUID().toString().substring(0, 8));
+        } catch (JsonProcessingException | DataAccessException ex) {
+            log.warn("Could not relay {} change of user {}", event.type(), event.userId(), ex);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int epochEnd = body.indexOf(':');
+        int sequenceEnd = body.indexOf(':', epochEnd + 1);
+        try {
+            long sequence = Long.parseLong(body.substring(epochEnd + 1, sequenceEnd));
+            userChangeFeed.accept(body.substring(0, epochEnd), sequence,
+                    objectMapper.readValue(body.substring(sequenceEnd + 1), UserChangeEvent.class));
+        } catch (JsonProcessingException | RuntimeException ex) {
+            log.warn("Dropping malformed user change message", ex);
+        }
+    }
+}
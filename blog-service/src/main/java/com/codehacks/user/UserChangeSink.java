@@ -0,0 +1,22 @@
+package com.codehacks.user;
+
+import java.io.IOException;
+
+/**
+ * Transport a change feed subscriber is written to, e.g. an SSE connection.
+ */
+interface UserChangeSink {
+
+    void send(UserChange change) throws IOException;
+
+    /**
+     * Tells the client that the event it asked to resume from is no longer
+     * retained, or belongs to another epoch, and it has to resync before
+     * following the feed from {@code eventId}.
+     */
+    void reset(String eventId) throws IOException;
+
+    void heartbeat() throws IOException;
+
+    void close();
+}
@@ -21,6 +21,16 @@ class UserController {
         return userService.getAllUsers();
     }
 
+    @GetMapping(path = {"", "/batch"}, params = "ids")
+    public UserBatchResponse getUsersByIds(@RequestParam List<Long> ids) {
+        return userService.getUsersByIds(ids);
+    }
+
+    @PostMapping("/batch")
+    public UserBatchResponse getUsersByIds(@RequestBody UserBatchRequest batchRequest) {
+        return userService.getUsersByIds(batchRequest.ids());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<UserResponse> getUserById(@PathVariable Long id) {
         Optional<UserResponse> user = userService.getUserById(id);
@@ -0,0 +1,225 @@
+package com.codehacks.user;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Streams {@link UserImportRecord}s from CSV or newline-delimited JSON input,
+ * one line at a time. CSV input needs a header naming the {@code username},
+ * {@code email} and {@code password} columns, and may add {@code created_at}.
+ */
+abstract class UserImportReader implements Closeable {
+
+    enum Format { CSV, NDJSON }
+
+    // users.username and users.email are VARCHAR(255).
+    static final int MAX_COLUMN_LENGTH = 255;
+
+    private final BufferedReader reader;
+    private long lineNumber;
+
+    private UserImportReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, 1 << 16);
+    }
+
+    static UserImportReader open(Reader reader, Format format, ObjectMapper objectMapper) throws IOException {
+        return format == Format.CSV ? new CsvReader(reader) : new NdjsonReader(reader, objectMapper);
+    }
+
+    static Format formatOf(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl") ? Format.NDJSON : Format.CSV;
+    }
+
+    /**
+     * Returns the next record, or {@code null} at the end of the input.
+     */
+    UserImportRecord next() throws IOException {
+        String line;
+        do {
+            line = readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+        return parse(lineNumber, line);
+    }
+
+    /**
+     * Skips input up to and including {@code lastLine}, e.g. when resuming an import.
+     */
+    void skipTo(long lastLine) throws IOException {
+        while (lineNumber < lastLine && readLine() != null) {
+            // already staged by a previous run
+        }
+    }
+
+    long lineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    abstract UserImportRecord parse(long lineNumber, String line);
+
+    String readLine() throws IOException {
+        String line = reader.readLine();
+        if (line != null) {
+            lineNumber++;
+        }
+        return line;
+    }
+
+    static UserImportRecord validated(long lineNumber, String username, String email, String password, String createdAt) {
+        if (isBlank(username) || isBlank(email) || isBlank(password)) {
+            return UserImportRecord.rejected(lineNumber, "username, email and password are required");
+        }
+        if (email.indexOf('@') < 1) {
+            return UserImportRecord.rejected(lineNumber, "invalid email");
+        }
+        // A value COPY cannot store fails the whole batch, so reject it here instead.
+        if (!fitsColumn(username.trim()) || !fitsColumn(email.trim())) {
+            return UserImportRecord.rejected(lineNumber, "username and email must be at most "
+                    + MAX_COLUMN_LENGTH + " characters");
+        }
+        if (containsNul(username) || containsNul(email) || containsNul(password)) {
+            return UserImportRecord.rejected(lineNumber, "NUL characters are not allowed");
+        }
+        LocalDateTime created = null;
+        if (!isBlank(createdAt)) {
+            try {
+                created = LocalDateTime.parse(createdAt.trim());
+            } catch (DateTimeParseException ex) {
+                return UserImportRecord.rejected(lineNumber, "invalid created_at");
+            }
+        }
+        return UserImportRecord.of(lineNumber, username.trim(), email.trim(), password, created);
+    }
+
+    private static boolean fitsColumn(String value) {
+        return value.codePointCount(0, value.length()) <= MAX_COLUMN_LENGTH;
+    }
+
+    private static boolean containsNul(String value) {
+        return value.indexOf('\0') >= 0;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static final class CsvReader extends UserImportReader {
+
+        private final int usernameColumn;
+        private final int emailColumn;
+        private final int passwordColumn;
+        private final int createdAtColumn;
+
+        private CsvReader(Reader reader) throws IOException {
+            super(reader);
+            String header = readLine();
+            if (header == null) {
+                throw new IllegalArgumentException("CSV input is empty");
+            }
+            List<String> columns = split(header).stream().map(column -> column.trim().toLowerCase(Locale.ROOT)).toList();
+            usernameColumn = columns.indexOf("username");
+            emailColumn = columns.indexOf("email");
+            passwordColumn = columns.indexOf("password");
+            createdAtColumn = columns.indexOf("created_at");
+            if (usernameColumn < 0 || emailColumn < 0 || passwordColumn < 0) {
+                throw new IllegalArgumentException("CSV header must contain username, email and password columns");
+            }
+        }
+
+        @Override
+        UserImportRecord parse(long lineNumber, String line) {
+            List<String> fields = split(line);
+            if (fields == null) {
+                return UserImportRecord.rejected(lineNumber, "unterminated quoted field");
+            }
+            return validated(lineNumber, field(fields, usernameColumn), field(fields, emailColumn),
+                    field(fields, passwordColumn), field(fields, createdAtColumn));
+        }
+
+        private static String field(List<String> fields, int column) {
+            return column >= 0 && column < fields.size() ? fields.get(column) : null;
+        }
+
+        /**
+         * Splits one RFC 4180 line; returns {@code null} when a quoted field is not closed.
+         */
+        private static List<String> split(String line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+
+    private static final class NdjsonReader extends UserImportReader {
+
+        private final ObjectMapper objectMapper;
+
+        private NdjsonReader(Reader reader, ObjectMapper objectMapper) {
+            super(reader);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        UserImportRecord parse(long lineNumber, String line) {
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (IOException ex) {
+                return UserImportRecord.rejected(lineNumber, "malformed JSON");
+            }
+            if (node == null || !node.isObject()) {
+                return UserImportRecord.rejected(lineNumber, "expected a JSON object");
+            }
+            return validated(lineNumber, text(node, "username"), text(node, "email"),
+                    text(node, "password"), text(node, "createdAt"));
+        }
+
+        private static String text(JsonNode node, String field) {
+            JsonNode value = node.get(field);
+            return value == null || value.isNull() ? null : value.asText();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.codehacks.user;
+
+import java.time.LocalDateTime;
+
+/**
+ * One input line of a bulk user import. Lines that cannot be imported carry a
+ * {@code rejectReason} instead of user fields.
+ */
+record UserImportRecord(long lineNumber, String username, String email, String password,
+                        LocalDateTime createdAt, String rejectReason) {
+
+    static UserImportRecord of(long lineNumber, String username, String email, String password, LocalDateTime createdAt) {
+        return new UserImportRecord(lineNumber, username, email, password, createdAt, null);
+    }
+
+    static UserImportRecord rejected(long lineNumber, String rejectReason) {
+        return new UserImportRecord(lineNumber, null, null, null, null, rejectReason);
+    }
+
+    boolean isRejected() {
+        return rejectReason != null;
+    }
+
+    UserImportRecord withPassword(String password) {
+        return new UserImportRecord(lineNumber, username, email, password, createdAt, null);
+    }
+}
@@ -0,0 +1,11 @@
+package com.codehacks.user;
+
+import java.time.Duration;
+
+record UserImportReport(String job, long read, long staged, long rejected, long inserted, long duplicates,
+                        Duration elapsed) {
+
+    double rowsPerSecond() {
+        return elapsed.isZero() ? read : read / (elapsed.toNanos() / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,82 @@
+package com.codehacks.user;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Runs an offline bulk import and exits, e.g.
+ * {@code java -jar blogapp.jar --spring.main.web-application-type=none --blog.import.source=users.csv}.
+ * Rejected lines are appended to {@code <source>.rejects}. Rerunning the same
+ * job resumes after the last staged line.
+ */
+@Component
+@ConditionalOnProperty(name = "blog.import.source")
+@Slf4j
+class UserImportRunner implements ApplicationRunner {
+
+    private final UserImporter userImporter;
+    private final ConfigurableApplicationContext context;
+    private final Path source;
+    private final String format;
+    private final String job;
+    private final boolean preHashed;
+    private final int batchSize;
+    private final int hashingThreads;
+
+    UserImportRunner(UserImporter userImporter,
+                     ConfigurableApplicationContext context,
+                     @Value("${blog.import.source}") Path source,
+                     @Value("${blog.import.format:}") String format,
+                     @Value("${blog.import.job:}") String job,
+                     @Value("${blog.import.pre-hashed:false}") boolean preHashed,
+                     @Value("${blog.import.batch-size:5000}") int batchSize,
+                     @Value("${blog.import.hashing-threads:0}") int hashingThreads) {
+        this.userImporter = userImporter;
+        this.context = context;
+        this.source = source;
+        this.format = format;
+        this.job = job;
+        this.preHashed = preHashed;
+        this.batchSize = batchSize;
+        this.hashingThreads = hashingThreads > 0 ? hashingThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        String fileName = source.getFileName().toString();
+        UserImportReader.Format inputFormat = format.isBlank()
+                ? UserImportReader.formatOf(fileName)
+                : UserImportReader.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        UserImporter.Options options = new UserImporter.Options(inputFormat, preHashed, batchSize, hashingThreads);
+        Path rejectsFile = source.resolveSibling(fileName + ".rejects");
+
+        int exitCode = 0;
+        try (Reader input = Files.newBufferedReader(source, StandardCharsets.UTF_8);
+             Writer rejects = Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8,
+                     StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            UserImportReport report = userImporter.importUsers(job.isBlank() ? fileName : job, input, options, rejects);
+            log.info("Import job '{}' finished in {} ms: {} read, {} staged, {} rejected, {} inserted, {} duplicates, {} rows/s",
+                    report.job(), report.elapsed().toMillis(), report.read(), report.staged(), report.rejected(),
+                    report.inserted(), report.duplicates(), Math.round(report.rowsPerSecond()));
+        } catch (Exception ex) {
+            log.error("Import of {} failed; rerun it to resume", source, ex);
+            exitCode = 1;
+        }
+        int status = exitCode;
+        System.exit(SpringApplication.exit(context, () -> status));
+    }
+}
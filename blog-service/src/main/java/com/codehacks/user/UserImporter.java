@@ -0,0 +1,328 @@
+package com.codehacks.user;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Pattern;
+
+/**
+ * Loads users in bulk without going through {@link UserService}.
+ * <p>
+ * Input is read in batches. Each batch has its passwords hashed in parallel
+ * and is streamed into an unlogged staging table with {@code COPY}, in the same
+ * transaction that advances the job's checkpoint, so a crashed import resumes
+ * after the last staged line. Once the input is exhausted a single
+ * {@code INSERT ... SELECT ... ON CONFLICT DO NOTHING} moves the staged rows into
+ * {@code users}, keeping the first occurrence of a duplicate username or email.
+ */
+@Component
+@Slf4j
+class UserImporter {
+
+    // BCryptPasswordEncoder refuses longer passwords, which would abort the whole batch.
+    private static final int MAX_BCRYPT_PASSWORD_BYTES = 72;
+
+    // Same versions as BCryptPasswordEncoder accepts; anything else could never be matched at login.
+    private static final Pattern BCRYPT_HASH = Pattern.compile("^\\$2(a|y|b)?\\$\\d{2}\\$[./A-Za-z0-9]{53}$");
+
+    private static final String CREATE_STAGING_TABLE = """
+            CREATE UNLOGGED TABLE IF NOT EXISTS users_import_staging (
+                job TEXT NOT NULL,
+                line_number BIGINT NOT NULL,
+                username TEXT NOT NULL,
+                email TEXT NOT NULL,
+                password TEXT NOT NULL,
+                created_at TIMESTAMP
+            )""";
+
+    private static final String CREATE_PROGRESS_TABLE = """
+            CREATE TABLE IF NOT EXISTS users_import_progress (
+                job TEXT PRIMARY KEY,
+                last_line BIGINT NOT NULL DEFAULT 0,
+                staged BIGINT NOT NULL DEFAULT 0,
+                rejected BIGINT NOT NULL DEFAULT 0,
+                inserted BIGINT,
+                completed_at TIMESTAMP
+            )""";
+
+    private static final String COPY_STAGING =
+            "COPY users_import_staging (job, line_number, username, email, password, created_at) FROM STDIN WITH (FORMAT csv)";
+
+    // The unique constraints on users are case-sensitive, so rows are deduplicated on
+    // lower(username) / lower(email) here; ON CONFLICT only catches concurrent inserts.
+    private static final String MERGE_STAGING = """
+            INSERT INTO users (username, email, password, created_at)
+            SELECT username, email, password, COALESCE(created_at, LOCALTIMESTAMP)
+            FROM (
+                SELECT staging.*,
+                       row_number() OVER (PARTITION BY lower(username) ORDER BY line_number) AS username_rank,
+                       row_number() OVER (PARTITION BY lower(email) ORDER BY line_number) AS email_rank
+                FROM users_import_staging staging
+                WHERE job = ?
+            ) staged
+            WHERE username_rank = 1
+              AND email_rank = 1
+              AND NOT EXISTS (SELECT 1 FROM users u WHERE lower(u.username) = lower(staged.username))
+              AND NOT EXISTS (SELECT 1 FROM users u WHERE lower(u.email) = lower(staged.email))
+            ORDER BY line_number
+            ON CONFLICT DO NOTHING""";
+
+    private final DataSource dataSource;
+    private final PasswordEncoder passwordEncoder;
+    private final ObjectMapper objectMapper;
+
+    UserImporter(DataSource dataSource, PasswordEncoder passwordEncoder, ObjectMapper objectMapper) {
+        this.dataSource = dataSource;
+        this.passwordEncoder = passwordEncoder;
+        this.objectMapper = objectMapper;
+    }
+
+    record Options(UserImportReader.Format format, boolean preHashed, int batchSize, int hashingThreads) {}
+
+    public UserImportReport importUsers(String job, Reader input, Options options, Writer rejects)
+            throws IOException, SQLException {
+        long startedAt = System.nanoTime();
+        Progress progress = prepare(job);
+        if (progress.completed()) {
+            log.info("Import job '{}' already completed, nothing to do", job);
+            return progress.toReport(job, Duration.ofNanos(System.nanoTime() - startedAt));
+        }
+        if (progress.lastLine() > 0) {
+            log.info("Resuming import job '{}' after line {}", job, progress.lastLine());
+        }
+
+        long staged = progress.staged();
+        long rejected = progress.rejected();
+        ForkJoinPool hashingPool = new ForkJoinPool(options.hashingThreads());
+        try (UserImportReader reader = UserImportReader.open(input, options.format(), objectMapper)) {
+            reader.skipTo(progress.lastLine());
+            List<UserImportRecord> batch;
+            while (!(batch = readBatch(reader, options.batchSize())).isEmpty()) {
+                List<UserImportRecord> prepared = hashAll(hashingPool, batch, options.preHashed());
+
+                List<UserImportRecord> accepted = new ArrayList<>(prepared.size());
+                List<UserImportRecord> failed = new ArrayList<>();
+                for (UserImportRecord record : prepared) {
+                    (record.isRejected() ? failed : accepted).add(record);
+                }
+                // Rejects are flushed before the checkpoint commits, so a crash in between
+                // repeats them on resume rather than losing them.
+                writeRejects(rejects, failed);
+                stage(job, accepted, failed.size(), reader.lineNumber());
+
+                staged += accepted.size();
+                rejected += failed.size();
+                double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+                log.info("Import job '{}': line {}, {} staged, {} rejected, {} rows/s",
+                        job, reader.lineNumber(), staged, rejected, Math.round((staged + rejected - progress.read()) / seconds));
+            }
+        } finally {
+            hashingPool.shutdown();
+        }
+
+        long inserted = merge(job);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+        return new UserImportReport(job, staged + rejected, staged, rejected, inserted, staged - inserted, elapsed);
+    }
+
+    private List<UserImportRecord> hashAll(ForkJoinPool pool, List<UserImportRecord> batch, boolean preHashed) {
+        return pool.submit(() -> batch.parallelStream().map(record -> hash(record, preHashed)).toList()).join();
+    }
+
+    private UserImportRecord hash(UserImportRecord record, boolean preHashed) {
+        if (record.isRejected()) {
+            return record;
+        }
+        if (preHashed) {
+            return BCRYPT_HASH.matcher(record.password()).matches()
+                    ? record
+                    : UserImportRecord.rejected(record.lineNumber(), "password is not a BCrypt hash");
+        }
+        if (record.password().getBytes(StandardCharsets.UTF_8).length > MAX_BCRYPT_PASSWORD_BYTES) {
+            return UserImportRecord.rejected(record.lineNumber(), "password is longer than 72 bytes");
+        }
+        return record.withPassword(passwordEncoder.encode(record.password()));
+    }
+
+    private static List<UserImportRecord> readBatch(UserImportReader reader, int batchSize) throws IOException {
+        List<UserImportRecord> batch = new ArrayList<>(batchSize);
+        UserImportRecord record;
+        while (batch.size() < batchSize && (record = reader.next()) != null) {
+            batch.add(record);
+        }
+        return batch;
+    }
+
+    /**
+     * Creates the import tables and loads the job's checkpoint. Unlogged staging
+     * rows do not survive a database crash, so a checkpoint that no longer
+     * matches the staged rows restarts the job from the beginning.
+     */
+    private Progress prepare(String job) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_STAGING_TABLE);
+            statement.execute(CREATE_PROGRESS_TABLE);
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO users_import_progress (job) VALUES (?) ON CONFLICT (job) DO NOTHING")) {
+                insert.setString(1, job);
+                insert.executeUpdate();
+            }
+
+            Progress progress;
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT last_line, staged, rejected, inserted, completed_at IS NOT NULL FROM users_import_progress WHERE job = ?")) {
+                select.setString(1, job);
+                try (ResultSet rs = select.executeQuery()) {
+                    rs.next();
+                    progress = new Progress(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getBoolean(5));
+                }
+            }
+            if (progress.completed() || progress.lastLine() == 0) {
+                return progress;
+            }
+
+            long stagedRows;
+            try (PreparedStatement count = connection.prepareStatement(
+                    "SELECT count(*) FROM users_import_staging WHERE job = ?")) {
+                count.setString(1, job);
+                try (ResultSet rs = count.executeQuery()) {
+                    rs.next();
+                    stagedRows = rs.getLong(1);
+                }
+            }
+            if (stagedRows == progress.staged()) {
+                return progress;
+            }
+            log.warn("Staged rows of import job '{}' were lost ({} of {}), restarting it", job, stagedRows, progress.staged());
+            try (PreparedStatement delete = connection.prepareStatement("DELETE FROM users_import_staging WHERE job = ?");
+                 PreparedStatement reset = connection.prepareStatement(
+                         "UPDATE users_import_progress SET last_line = 0, staged = 0, rejected = 0 WHERE job = ?")) {
+                delete.setString(1, job);
+                delete.executeUpdate();
+                reset.setString(1, job);
+                reset.executeUpdate();
+            }
+            return new Progress(0, 0, 0, 0, false);
+        }
+    }
+
+    private void stage(String job, List<UserImportRecord> records, int rejectedCount, long lastLine) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                if (!records.isEmpty()) {
+                    CopyIn copy = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING);
+                    try {
+                        byte[] rows = toCsv(job, records).getBytes(StandardCharsets.UTF_8);
+                        copy.writeToCopy(rows, 0, rows.length);
+                        copy.endCopy();
+                    } finally {
+                        if (copy.isActive()) {
+                            copy.cancelCopy();
+                        }
+                    }
+                }
+                try (PreparedStatement update = connection.prepareStatement(
+                        "UPDATE users_import_progress SET last_line = ?, staged = staged + ?, rejected = rejected + ? WHERE job = ?")) {
+                    update.setLong(1, lastLine);
+                    update.setLong(2, records.size());
+                    update.setLong(3, rejectedCount);
+                    update.setString(4, job);
+                    update.executeUpdate();
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private long merge(String job) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement merge = connection.prepareStatement(MERGE_STAGING);
+                 PreparedStatement delete = connection.prepareStatement("DELETE FROM users_import_staging WHERE job = ?");
+                 PreparedStatement complete = connection.prepareStatement(
+                         "UPDATE users_import_progress SET inserted = ?, completed_at = LOCALTIMESTAMP WHERE job = ?")) {
+                merge.setString(1, job);
+                long inserted = merge.executeLargeUpdate();
+                delete.setString(1, job);
+                delete.executeUpdate();
+                complete.setLong(1, inserted);
+                complete.setString(2, job);
+                complete.executeUpdate();
+                connection.commit();
+                return inserted;
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static void writeRejects(Writer rejects, List<UserImportRecord> failed) {
+        try {
+            for (UserImportRecord record : failed) {
+                rejects.write(record.lineNumber() + "\t" + record.rejectReason() + "\n");
+            }
+            rejects.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    static String toCsv(String job, List<UserImportRecord> records) {
+        StringBuilder csv = new StringBuilder(records.size() * 128);
+        for (UserImportRecord record : records) {
+            appendQuoted(csv, job).append(',').append(record.lineNumber()).append(',');
+            appendQuoted(csv, record.username()).append(',');
+            appendQuoted(csv, record.email()).append(',');
+            appendQuoted(csv, record.password()).append(',');
+            if (record.createdAt() != null) {
+                csv.append(record.createdAt());
+            }
+            csv.append('\n');
+        }
+        return csv.toString();
+    }
+
+    private static StringBuilder appendQuoted(StringBuilder csv, String value) {
+        return csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private record Progress(long lastLine, long staged, long rejected, long inserted, boolean completed) {
+
+        long read() {
+            return staged + rejected;
+        }
+
+        UserImportReport toReport(String job, Duration elapsed) {
+            return new UserImportReport(job, read(), staged, rejected, inserted, staged - inserted, elapsed);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.codehacks.user;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent lookups of the same user id so that a burst of requests
+ * for a hot author results in a single repository call. A completed lookup is
+ * shared for a short window and then dropped by a timed removal, so expiry
+ * costs the read path nothing; mutations invalidate it eagerly.
+ */
+@Component
+class UserLookupCoalescer {
+
+    private final ConcurrentMap<Long, Lookup> lookups = new ConcurrentHashMap<>();
+    private final long windowNanos;
+    private final Executor expiry;
+
+    UserLookupCoalescer(@Value("${blog.users.lookup-coalesce-window:50ms}") Duration window) {
+        this.windowNanos = window.toNanos();
+        this.expiry = CompletableFuture.delayedExecutor(windowNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public Optional<UserResponse> lookup(Long id, Function<Long, Optional<UserResponse>> loader) {
+        long now = System.nanoTime();
+        Lookup created = new Lookup(now);
+        Lookup lookup = lookups.compute(id, (key, existing) ->
+                existing != null && existing.isReusable(now, windowNanos) ? existing : created);
+
+        if (lookup == created) {
+            try {
+                created.result.complete(loader.apply(id));
+            } catch (Throwable ex) {
+                // Complete on Errors too, or concurrent callers would wait in join() forever.
+                created.result.completeExceptionally(ex);
+                lookups.remove(id, created);
+                throw ex;
+            }
+            if (windowNanos == 0) {
+                lookups.remove(id, created);
+            } else {
+                expiry.execute(() -> lookups.remove(id, created));
+            }
+        }
+        try {
+            return lookup.result.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    public void invalidate(Long id) {
+        lookups.remove(id);
+    }
+
+    int size() {
+        return lookups.size();
+    }
+
+    private static final class Lookup {
+        private final long startedAt;
+        private final CompletableFuture<Optional<UserResponse>> result = new CompletableFuture<>();
+
+        private Lookup(long startedAt) {
+            this.startedAt = startedAt;
+        }
+
+        private boolean isReusable(long now, long windowNanos) {
+            return !result.isDone() || (!result.isCompletedExceptionally() && now - startedAt < windowNanos);
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package com.codehacks.user;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -12,4 +17,28 @@ interface UserRepository extends JpaRepository<User, Long> {
     
     Optional<User> findByEmail(String email);
 
+    // lower() on both sides so Postgres can use users_username_lower_idx / users_email_lower_idx.
+    // Counted rather than loaded: rows created before these checks may differ only in case.
+    @Query("select case when count(u) > 0 then true else false end from User u "
+            + "where lower(u.username) = lower(:username)")
+    boolean existsByUsernameIgnoreCase(String username);
+
+    @Query("select case when count(u) > 0 then true else false end from User u "
+            + "where lower(u.email) = lower(:email)")
+    boolean existsByEmailIgnoreCase(String email);
+
+    // Selects only the columns in users_created_at_idx, allowing an index-only scan.
+    @Query("select new com.codehacks.user.UserResponse(u.id, u.username, u.email, u.createdAt) "
+            + "from User u order by u.createdAt, u.id")
+    List<UserResponse> findAllUserResponses();
+
+    @Query("select u.id from User u order by u.createdAt desc, u.id desc")
+    List<Long> findRecentIds(Pageable pageable);
+
+    // Returns the number of rows removed: deleteById is silent when the id does not exist.
+    @Modifying
+    @Transactional
+    @Query("delete from User u where u.id = :id")
+    int deleteUserById(Long id);
+
 } 
\ No newline at end of file
@@ -1,35 +1,87 @@
 package com.codehacks.user;
 
 import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @AllArgsConstructor
 class UserService {
 
+    static final int MAX_BATCH_IDS = 1000;
+    static final int ID_CHUNK_SIZE = 200;
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserLookupCoalescer userLookupCoalescer;
+    private final ApplicationEventPublisher eventPublisher;
 
     public List<UserResponse> getAllUsers() {
-        return userRepository.findAll().stream().map(UserResponse::fromUser).toList();
+        return userRepository.findAllUserResponses();
     }
 
     public Optional<UserResponse> getUserById(Long id) {
+        return userLookupCoalescer.lookup(id, this::loadUserById);
+    }
+
+    /**
+     * Reads the user straight from the repository, without sharing the result
+     * with concurrent lookups of the same id.
+     */
+    Optional<UserResponse> loadUserById(Long id) {
         return userRepository.findById(id).map(UserResponse::fromUser);
     }
 
+    public UserBatchResponse getUsersByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new UserBatchResponse(List.of(), List.of());
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("User ids must not be null");
+        }
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        if (uniqueIds.size() > MAX_BATCH_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_IDS + " user ids can be requested at once");
+        }
+
+        List<Long> orderedIds = new ArrayList<>(uniqueIds);
+        Map<Long, UserResponse> found = new HashMap<>();
+        for (int from = 0; from < orderedIds.size(); from += ID_CHUNK_SIZE) {
+            List<Long> chunk = orderedIds.subList(from, Math.min(from + ID_CHUNK_SIZE, orderedIds.size()));
+            userRepository.findAllById(chunk).forEach(user -> found.put(user.getId(), UserResponse.fromUser(user)));
+        }
+
+        List<UserResponse> users = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : orderedIds) {
+            UserResponse user = found.get(id);
+            if (user != null) {
+                users.add(user);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new UserBatchResponse(users, missingIds);
+    }
+
     public Optional<UserResponse> getByUsername(String username) {
         return userRepository.findByUsername(username).map(UserResponse::fromUser);
     }
 
     public UserResponse createUser(UserRequest userRequest) {
-        if (userRepository.findByUsername(userRequest.username()).isPresent()) {
+        if (userRepository.existsByUsernameIgnoreCase(userRequest.username())) {
             throw new IllegalArgumentException("Username already exists");
         }
-        if (userRepository.findByEmail(userRequest.email()).isPresent()) {
+        if (userRepository.existsByEmailIgnoreCase(userRequest.email())) {
             throw new IllegalArgumentException("Email already exists");
         }
 
@@ -38,7 +90,9 @@ class UserService {
         user.setEmail(userRequest.email());
         user.setPassword(passwordEncoder.encode(userRequest.password()));
 
-        return UserResponse.fromUser(userRepository.save(user));
+        UserResponse created = UserResponse.fromUser(userRepository.save(user));
+        eventPublisher.publishEvent(UserChangeEvent.created(created));
+        return created;
     }
 
     public Optional<UserResponse> updateUser(Long id, UserRequest userRequest) {
@@ -46,7 +100,10 @@ class UserService {
             user.setUsername(userRequest.username());
             user.setEmail(userRequest.email());
             user.setPassword(passwordEncoder.encode(userRequest.password()));
-            return UserResponse.fromUser(userRepository.save(user));
+            UserResponse updated = UserResponse.fromUser(userRepository.save(user));
+            userLookupCoalescer.invalidate(id);
+            eventPublisher.publishEvent(UserChangeEvent.updated(updated));
+            return updated;
         });
     }
 
@@ -55,11 +112,17 @@ class UserService {
             user.setUsername(userRequest.username());
             user.setEmail(userRequest.email());
             user.setPassword(passwordEncoder.encode(userRequest.password()));
-            return UserResponse.fromUser(userRepository.save(user));
+            UserResponse updated = UserResponse.fromUser(userRepository.save(user));
+            userLookupCoalescer.invalidate(updated.id());
+            eventPublisher.publishEvent(UserChangeEvent.updated(updated));
+            return updated;
         });
     }
 
     public void deleteUser(Long id) {
-        userRepository.deleteById(id);
+        if (userRepository.deleteUserById(id) > 0) {
+            userLookupCoalescer.invalidate(id);
+            eventPublisher.publishEvent(UserChangeEvent.deleted(id));
+        }
     }
 } 
\ No newline at end of file
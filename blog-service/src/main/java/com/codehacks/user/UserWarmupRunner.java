@@ -0,0 +1,226 @@
+package com.codehacks.user;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+
+/**
+ * Warms up the read path before the pod reports ready. Spring Boot only moves
+ * readiness to {@code ACCEPTING_TRAFFIC} after all application runners have
+ * returned, so the probe keeps failing while this runs.
+ * <p>
+ * Synthetic reads go through {@link UserController}, {@link UserService} and the
+ * repository, and every response is written out by the same Jackson converter
+ * MVC uses. Single-user reads call {@link UserService#loadUserById} rather than
+ * the controller: the lookup coalescer would otherwise answer most of them from
+ * another thread's query, leaving connections and statements cold. Reads use
+ * the ids of existing users plus ids that do not exist and nothing is written.
+ * Running them from as many threads as the connection pool has connections
+ * opens every connection and lets the driver switch each one to server-side
+ * prepared statements. Rounds continue until their p99 latency is stable or
+ * the time budget is spent.
+ */
+@Component
+@ConditionalOnWebApplication
+@ConditionalOnProperty(name = "blog.warmup.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+class UserWarmupRunner implements ApplicationRunner {
+
+    private static final int SAMPLE_SIZE = 100;
+    private static final int MAX_LISTED_USERS = 1000;
+    private static final int BATCH_SIZE = 20;
+
+    private final UserController userController;
+    private final UserService userService;
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final MappingJackson2HttpMessageConverter jsonConverter;
+    private final MeterRegistry meterRegistry;
+    private final Duration timeBudget;
+    private final int concurrency;
+    private final int iterationsPerRound;
+    private final WarmupLatencyTracker tracker;
+    private final int passwordChecks;
+
+    UserWarmupRunner(UserController userController,
+                     UserService userService,
+                     UserRepository userRepository,
+                     PasswordEncoder passwordEncoder,
+                     MappingJackson2HttpMessageConverter jsonConverter,
+                     MeterRegistry meterRegistry,
+                     @Value("${blog.warmup.time-budget:30s}") Duration timeBudget,
+                     @Value("${blog.warmup.concurrency:${spring.datasource.hikari.maximum-pool-size:10}}") int concurrency,
+                     @Value("${blog.warmup.iterations-per-round:50}") int iterationsPerRound,
+                     @Value("${blog.warmup.stable-rounds:3}") int stableRounds,
+                     @Value("${blog.warmup.stability-tolerance:0.15}") double stabilityTolerance,
+                     @Value("${blog.warmup.password-checks:4}") int passwordChecks) {
+        this.userController = userController;
+        this.userService = userService;
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.jsonConverter = jsonConverter;
+        this.meterRegistry = meterRegistry;
+        this.timeBudget = timeBudget;
+        this.concurrency = concurrency;
+        this.iterationsPerRound = iterationsPerRound;
+        this.tracker = new WarmupLatencyTracker(stableRounds, stabilityTolerance);
+        this.passwordChecks = passwordChecks;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + timeBudget.toNanos();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "user-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        boolean stable = false;
+        try {
+            checkPasswords(workers);
+            Workload workload = loadWorkload();
+            while (!stable && System.nanoTime() < deadline) {
+                stable = tracker.record(runRound(workers, workload));
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Warm-up aborted after {} rounds", tracker.rounds(), ex);
+        } finally {
+            workers.shutdownNow();
+        }
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+        meterRegistry.timer("blog.warmup.duration", "outcome", stable ? "stable" : "budget").record(elapsed);
+        log.info("Warm-up finished in {} ms after {} rounds; {} at p99 {} us", elapsed.toMillis(), tracker.rounds(),
+                stable ? "latency stable" : "time budget reached", tracker.lastP99() / 1_000);
+    }
+
+    /**
+     * Runs BCrypt a few times in parallel so that its key schedule is compiled
+     * before the first login or sign-up.
+     */
+    private void checkPasswords(ExecutorService workers) {
+        String hash = passwordEncoder.encode("warm-up");
+        List<Future<?>> checks = new ArrayList<>(passwordChecks);
+        for (int i = 0; i < passwordChecks; i++) {
+            checks.add(workers.submit(() -> passwordEncoder.matches("warm-up", hash)));
+        }
+        checks.forEach(UserWarmupRunner::await);
+    }
+
+    private Workload loadWorkload() {
+        List<Long> existingIds = userRepository.findRecentIds(PageRequest.of(0, SAMPLE_SIZE));
+        long missingFrom = existingIds.stream().mapToLong(Long::longValue).max().orElse(0) + 1_000_000;
+        List<Long> ids = new ArrayList<>(existingIds);
+        LongStream.range(missingFrom, missingFrom + BATCH_SIZE).forEach(ids::add);
+        boolean listAll = userRepository.count() <= MAX_LISTED_USERS;
+        return new Workload(ids, listAll);
+    }
+
+    private long[] runRound(ExecutorService workers, Workload workload) {
+        List<Future<long[]>> results = new ArrayList<>(concurrency);
+        for (int worker = 0; worker < concurrency; worker++) {
+            int offset = worker * iterationsPerRound;
+            results.add(workers.submit(() -> {
+                long[] latencies = new long[iterationsPerRound];
+                for (int i = 0; i < iterationsPerRound; i++) {
+                    long startedAt = System.nanoTime();
+                    read(workload, offset + i);
+                    latencies[i] = System.nanoTime() - startedAt;
+                }
+                return latencies;
+            }));
+        }
+        long[] latencies = new long[concurrency * iterationsPerRound];
+        for (int worker = 0; worker < concurrency; worker++) {
+            System.arraycopy(await(results.get(worker)), 0, latencies, worker * iterationsPerRound, iterationsPerRound);
+        }
+        return latencies;
+    }
+
+    private void read(Workload workload, int iteration) {
+        List<Long> ids = workload.ids();
+        Long id = ids.get(iteration % ids.size());
+        userService.loadUserById(id).ifPresent(this::write);
+
+        int from = iteration % ids.size();
+        List<Long> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(ids.get((from + i) % ids.size()));
+        }
+        write(userController.getUsersByIds(batch));
+
+        userRepository.existsByUsernameIgnoreCase("warmup-" + iteration);
+        userRepository.existsByEmailIgnoreCase("warmup-" + iteration + "@warmup.invalid");
+
+        if (workload.listAll() && iteration % 10 == 0) {
+            write(userController.getAllUsers());
+        } else {
+            write(List.of(new UserResponse((long) iteration, "warmup-" + iteration,
+                    "warmup-" + iteration + "@warmup.invalid", LocalDateTime.now())));
+        }
+    }
+
+    private void write(Object body) {
+        try {
+            jsonConverter.write(body, MediaType.APPLICATION_JSON, new DiscardingOutputMessage());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during warm-up", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private record Workload(List<Long> ids, boolean listAll) {}
+
+    private static final class DiscardingOutputMessage implements HttpOutputMessage {
+
+        private final HttpHeaders headers = new HttpHeaders();
+
+        @Override
+        public OutputStream getBody() {
+            return OutputStream.nullOutputStream();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
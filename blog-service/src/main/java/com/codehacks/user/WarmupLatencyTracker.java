@@ -0,0 +1,65 @@
+package com.codehacks.user;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Decides when warm-up has converged: latency is considered stable once the p99
+ * of the last {@code window} rounds stays within {@code tolerance} of its lowest
+ * value, i.e. further rounds no longer make requests noticeably faster.
+ */
+class WarmupLatencyTracker {
+
+    private final int window;
+    private final double tolerance;
+    private final Deque<Long> recentP99s = new ArrayDeque<>();
+    private int rounds;
+
+    WarmupLatencyTracker(int window, double tolerance) {
+        if (window < 2) {
+            throw new IllegalArgumentException("Warm-up stability window must span at least two rounds");
+        }
+        this.window = window;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Records the latencies of one round, in nanoseconds, and returns whether
+     * latency has stabilized.
+     */
+    boolean record(long[] latencies) {
+        if (latencies.length == 0) {
+            return false;
+        }
+        rounds++;
+        recentP99s.addLast(p99(latencies));
+        if (recentP99s.size() > window) {
+            recentP99s.removeFirst();
+        }
+        return isStable();
+    }
+
+    boolean isStable() {
+        if (recentP99s.size() < window) {
+            return false;
+        }
+        long min = recentP99s.stream().mapToLong(Long::longValue).min().orElseThrow();
+        long max = recentP99s.stream().mapToLong(Long::longValue).max().orElseThrow();
+        return max <= min * (1 + tolerance);
+    }
+
+    int rounds() {
+        return rounds;
+    }
+
+    long lastP99() {
+        return recentP99s.isEmpty() ? 0 : recentP99s.getLast();
+    }
+
+    static long p99(long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(sorted.length * 0.99) - 1];
+    }
+}
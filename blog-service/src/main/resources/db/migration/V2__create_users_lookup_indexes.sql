@@ -0,0 +1,10 @@
+-- Built CONCURRENTLY so writes to users are not blocked; Flyway runs this
+-- migration outside a transaction. If a build fails it leaves an INVALID index
+-- behind, which has to be dropped before repairing and rerunning the migration.
+
+-- Case-insensitive lookups: lower(username) / lower(email) in UserRepository.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_username_lower_idx ON users (lower(username));
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_email_lower_idx ON users (lower(email));
+
+-- Covers the user list (ordered by created_at, id) so it is served by an index-only scan.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_created_at_idx ON users (created_at, id) INCLUDE (username, email);
@@ -0,0 +1,289 @@
+package com.codehacks.concurrency;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AdaptiveConcurrencyFilterTest {
+
+    private static final int WORKERS = 32;
+
+    @Test
+    void shouldRejectWithServiceUnavailableWhenRouteClassIsAtLimit() throws Exception {
+        Map<RouteClass, ConcurrencyLimiter> limiters = limiters(2, 1);
+        AdaptiveConcurrencyFilter filter = new AdaptiveConcurrencyFilter(limiters, capacity(32));
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> blocked = executor.submit(() -> {
+                filter.doFilter(request("POST"), new MockHttpServletResponse(), (req, res) -> {
+                    entered.countDown();
+                    awaitQuietly(release);
+                });
+                return null;
+            });
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+            MockHttpServletResponse rejected = new MockHttpServletResponse();
+            filter.doFilter(request("PUT"), rejected, new MockFilterChain());
+            MockHttpServletResponse read = new MockHttpServletResponse();
+            filter.doFilter(request("GET"), read, new MockFilterChain());
+
+            assertThat(rejected.getStatus()).isEqualTo(503);
+            assertThat(rejected.getHeader("Retry-After")).isEqualTo("1");
+            assertThat(read.getStatus()).isEqualTo(200);
+            assertThat(limiters.get(RouteClass.MUTATION).getRejected()).isEqualTo(1);
+            assertThat(limiters.get(RouteClass.READ).getRejected()).isZero();
+
+            release.countDown();
+            blocked.get(5, TimeUnit.SECONDS);
+            assertThat(limiters.get(RouteClass.MUTATION).getInFlight()).isZero();
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldKeepReservedCapacityForReadsWhenMutationsAreBelowTheirLimit() throws Exception {
+        Map<RouteClass, ConcurrencyLimiter> limiters = limiters(200, 200);
+        AdaptiveConcurrencyFilter filter = new AdaptiveConcurrencyFilter(limiters, capacity(4));
+        CountDownLatch entered = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<?>> blocked = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                blocked.add(executor.submit(() -> {
+                    filter.doFilter(request("POST"), new MockHttpServletResponse(), (req, res) -> {
+                        entered.countDown();
+                        awaitQuietly(release);
+                    });
+                    return null;
+                }));
+            }
+            assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+            // Half of the capacity of 4 is reserved for reads, so a third mutation is shed.
+            MockHttpServletResponse mutation = new MockHttpServletResponse();
+            filter.doFilter(request("DELETE"), mutation, new MockFilterChain());
+            MockHttpServletResponse read = new MockHttpServletResponse();
+            filter.doFilter(request("GET"), read, new MockFilterChain());
+
+            assertThat(mutation.getStatus()).isEqualTo(503);
+            assertThat(read.getStatus()).isEqualTo(200);
+            assertThat(limiters.get(RouteClass.MUTATION).getRejected()).isEqualTo(1);
+            assertThat(limiters.get(RouteClass.MUTATION).getInFlight()).isEqualTo(2);
+
+            release.countDown();
+            for (Future<?> future : blocked) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+            assertThat(limiters.get(RouteClass.MUTATION).getInFlight()).isZero();
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldSampleLatencyOfSuccessesAndServerErrorsButNotClientErrors() throws Exception {
+        ConcurrencyLimiter limiter = mock(ConcurrencyLimiter.class);
+        when(limiter.tryAcquire()).thenReturn(true);
+        Map<RouteClass, ConcurrencyLimiter> limiters = new EnumMap<>(RouteClass.class);
+        limiters.put(RouteClass.READ, limiter);
+        AdaptiveConcurrencyFilter filter = new AdaptiveConcurrencyFilter(limiters, capacity(32));
+
+        filter.doFilter(request("GET"), new MockHttpServletResponse(), respondWith(401));
+        filter.doFilter(request("GET"), new MockHttpServletResponse(), respondWith(404));
+        verify(limiter, times(2)).releaseWithoutSample();
+        verify(limiter, never()).release(anyLong(), anyBoolean());
+
+        filter.doFilter(request("GET"), new MockHttpServletResponse(), respondWith(200));
+        filter.doFilter(request("GET"), new MockHttpServletResponse(), respondWith(503));
+        verify(limiter).release(anyLong(), eq(false));
+        verify(limiter).release(anyLong(), eq(true));
+    }
+
+    @Test
+    void shouldClassifyBatchLookupsAsReads() {
+        assertThat(RouteClass.of(new MockHttpServletRequest("POST", "/api/v1/users/batch"))).isEqualTo(RouteClass.READ);
+        assertThat(RouteClass.of(new MockHttpServletRequest("POST", "/api/v1/users"))).isEqualTo(RouteClass.MUTATION);
+        assertThat(RouteClass.of(new MockHttpServletRequest("DELETE", "/api/v1/users/batch"))).isEqualTo(RouteClass.MUTATION);
+    }
+
+    /**
+     * Simulates a servlet container with a fixed worker pool and a bounded
+     * accept queue, flooded with mutations whose cost is bounded by a small
+     * number of CPUs (like BCrypt) while reads keep arriving. Without shedding,
+     * writes occupy every worker and reads queue behind them; with the filter
+     * the mutation limit converges near the CPU capacity and reads keep getting
+     * workers. Latency of the reads that were served is compared against the
+     * unprotected run on the same machine rather than against a fixed bound, so
+     * a slow build agent slows down both runs alike; reads that were refused or
+     * shed are counted separately and must stay rare with the filter in place.
+     */
+    @Test
+    void readLatencyShouldStayStableWhileWritesSaturate() throws Exception {
+        Map<RouteClass, ConcurrencyLimiter> limiters = limiters(50, 10);
+        AdaptiveConcurrencyFilter filter = new AdaptiveConcurrencyFilter(limiters, capacity(WORKERS));
+
+        ReadLoad unprotected = readLoadUnderWriteFlood((method, chain) -> {
+            chain.doFilter(request(method), null);
+            return 200;
+        });
+        ReadLoad protectedLoad = readLoadUnderWriteFlood((method, chain) -> {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request(method), response, chain);
+            return response.getStatus();
+        });
+
+        assertThat(protectedLoad.failureRate()).isLessThan(0.01);
+        assertThat(protectedLoad.p99()).isLessThan(unprotected.p99() / 4);
+        assertThat(limiters.get(RouteClass.MUTATION).getRejected()).isPositive();
+        assertThat(limiters.get(RouteClass.READ).getRejected()).isZero();
+        assertThat(limiters.get(RouteClass.MUTATION).getLimit()).isLessThan(WORKERS);
+    }
+
+    private static ReadLoad readLoadUnderWriteFlood(Server server) throws Exception {
+        Semaphore cpus = new Semaphore(4);
+        FilterChain write = (req, res) -> {
+            cpus.acquireUninterruptibly();
+            try {
+                sleep(20);
+            } finally {
+                cpus.release();
+            }
+        };
+        FilterChain read = (req, res) -> sleep(1);
+
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(WORKERS, WORKERS, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(2 * WORKERS));
+        ExecutorService clients = Executors.newSingleThreadExecutor();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        long measureFrom = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+        List<Future<Long>> reads = new ArrayList<>();
+        try {
+            clients.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    try {
+                        workers.submit(() -> {
+                            server.handle("POST", write);
+                            return null;
+                        });
+                    } catch (RejectedExecutionException ex) {
+                        // accept queue full: the connection is refused
+                    }
+                    sleep(1);
+                }
+                return null;
+            });
+            while (System.nanoTime() < deadline) {
+                long submittedAt = System.nanoTime();
+                Future<Long> latency;
+                try {
+                    latency = workers.submit(() -> server.handle("GET", read) == 200
+                            ? System.nanoTime() - submittedAt
+                            : null);
+                } catch (RejectedExecutionException ex) {
+                    latency = CompletableFuture.completedFuture(null);
+                }
+                if (submittedAt > measureFrom) {
+                    reads.add(latency);
+                }
+                sleep(5 + ThreadLocalRandom.current().nextInt(3));
+            }
+
+            List<Long> latencies = new ArrayList<>();
+            for (Future<Long> latency : reads) {
+                Long served = latency.get(30, TimeUnit.SECONDS);
+                if (served != null) {
+                    latencies.add(served);
+                }
+            }
+            assertThat(latencies).isNotEmpty();
+            latencies.sort(null);
+            long p99 = latencies.get((int) Math.ceil(latencies.size() * 0.99) - 1);
+            return new ReadLoad(p99, 1 - (double) latencies.size() / reads.size());
+        } finally {
+            clients.shutdownNow();
+            workers.shutdownNow();
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private interface Server {
+        int handle(String method, FilterChain chain) throws Exception;
+    }
+
+    /**
+     * Read p99 over the reads that were served, and the share that was refused
+     * by the accept queue or shed with 503.
+     */
+    private record ReadLoad(long p99, double failureRate) {}
+
+    private static Map<RouteClass, ConcurrencyLimiter> limiters(int readLimit, int mutationLimit) {
+        Map<RouteClass, ConcurrencyLimiter> limiters = new EnumMap<>(RouteClass.class);
+        limiters.put(RouteClass.READ, new ConcurrencyLimiter(new VegasLimit(readLimit, 1, 200)));
+        limiters.put(RouteClass.MUTATION, new ConcurrencyLimiter(new VegasLimit(mutationLimit, 1, 200)));
+        return limiters;
+    }
+
+    private static PartitionedCapacity capacity(int capacity) {
+        return new PartitionedCapacity(capacity, Map.of(RouteClass.READ, 0.5, RouteClass.MUTATION, 0.1));
+    }
+
+    private static FilterChain respondWith(int status) {
+        return (req, res) -> ((HttpServletResponse) res).setStatus(status);
+    }
+
+    private static MockHttpServletRequest request(String method) {
+        return new MockHttpServletRequest(method, "/api/v1/users");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
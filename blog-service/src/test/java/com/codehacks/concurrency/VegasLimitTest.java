@@ -0,0 +1,84 @@
+package com.codehacks.concurrency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class VegasLimitTest {
+
+    private static final long BASE_RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    void onSample_shouldGrowWhileLatencyStaysAtBaseline() {
+        VegasLimit limit = new VegasLimit(10, 2, 100);
+
+        for (int i = 0; i < 20; i++) {
+            window(limit, BASE_RTT, limit.getLimit(), false);
+        }
+
+        assertThat(limit.getLimit()).isGreaterThan(10);
+    }
+
+    @Test
+    void onSample_shouldShrinkWhenRequestsQueue() {
+        VegasLimit limit = new VegasLimit(50, 2, 100);
+        window(limit, BASE_RTT, 50, false);
+
+        for (int i = 0; i < 20; i++) {
+            window(limit, BASE_RTT * 4, limit.getLimit(), false);
+        }
+
+        assertThat(limit.getLimit()).isLessThan(50);
+    }
+
+    @Test
+    void onSample_shouldIgnoreSamplesWhileUnderused() {
+        VegasLimit limit = new VegasLimit(50, 2, 100);
+        window(limit, BASE_RTT, 1, false);
+
+        for (int i = 0; i < 20; i++) {
+            window(limit, BASE_RTT * 4, 1, false);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(50);
+    }
+
+    @Test
+    void onSample_shouldShrinkOnDropsButNotBelowMinimum() {
+        VegasLimit limit = new VegasLimit(5, 3, 100);
+        window(limit, BASE_RTT, 5, false);
+
+        for (int i = 0; i < 20; i++) {
+            window(limit, BASE_RTT * 2, 5, true);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(3);
+    }
+
+    @Test
+    void onSample_shouldOnlyAdjustOncePerWindow() {
+        VegasLimit limit = new VegasLimit(10, 2, 100);
+        window(limit, BASE_RTT, 10, false);
+
+        for (int i = 0; i < VegasLimit.WINDOW_SIZE - 1; i++) {
+            limit.onSample(BASE_RTT, 10, false);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void constructor_shouldRejectInconsistentBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new VegasLimit(1, 2, 100));
+        assertThrows(IllegalArgumentException.class, () -> new VegasLimit(10, 2, 5));
+    }
+
+    private static void window(VegasLimit limit, long rttNanos, int inFlight, boolean dropped) {
+        for (int i = 0; i < VegasLimit.WINDOW_SIZE; i++) {
+            limit.onSample(rttNanos, inFlight, dropped);
+        }
+    }
+}
@@ -136,4 +136,23 @@ class UserApiIntegrationTest {
         ResponseEntity<String> resp2 = restTemplate.postForEntity("/api/v1/users", dupeEmail, String.class);
         assertThat(resp2.getStatusCode().is4xxClientError()).isTrue();
     }
+
+    @Test
+    void getUsersByIds_shouldPreserveOrderAndReportMissing() {
+        UserResponse first = restTemplate.postForEntity("/api/v1/users",
+                new UserRequest("batchOne", "batchOne@email.com", "pass"), UserResponse.class).getBody();
+        UserResponse second = restTemplate.postForEntity("/api/v1/users",
+                new UserRequest("batchTwo", "batchTwo@email.com", "pass"), UserResponse.class).getBody();
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+
+        ResponseEntity<UserBatchResponse> resp = restTemplate.getForEntity(
+                "/api/v1/users?ids=" + second.id() + ",99999," + first.id() + "," + second.id(), UserBatchResponse.class);
+
+        assertThat(resp.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(Objects.requireNonNull(resp.getBody()).users())
+                .extracting(UserResponse::username)
+                .containsExactly("batchTwo", "batchOne");
+        assertThat(resp.getBody().missingIds()).containsExactly(99999L);
+    }
 } 
\ No newline at end of file
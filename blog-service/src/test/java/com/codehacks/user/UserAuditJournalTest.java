@@ -0,0 +1,193 @@
+package com.codehacks.user;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserAuditJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private UserAuditJournal journal;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void findByUserId_shouldReturnOnlyThatUsersRecordsInOrder() throws IOException {
+        journal = open(DataSize.ofMegabytes(1), Duration.ofDays(1));
+        Instant occurredAt = Instant.parse("2025-01-01T10:00:00.123456Z");
+
+        journal.onUserChange(new UserChangeEvent(UserChangeEvent.Type.CREATED, 1L, null, occurredAt));
+        journal.onUserChange(new UserChangeEvent(UserChangeEvent.Type.CREATED, 2L, null, occurredAt));
+        journal.onUserChange(new UserChangeEvent(UserChangeEvent.Type.UPDATED, 1L, null, occurredAt));
+        journal.onUserChange(UserChangeEvent.deleted(1L));
+        journal.flush();
+
+        List<UserAuditRecord> records = journal.findByUserId(1L);
+
+        assertThat(records).extracting(UserAuditRecord::type).containsExactly(
+                UserChangeEvent.Type.CREATED, UserChangeEvent.Type.UPDATED, UserChangeEvent.Type.DELETED);
+        assertThat(records).extracting(UserAuditRecord::sequence).containsExactly(1L, 3L, 4L);
+        assertThat(records.get(0).occurredAt()).isEqualTo(occurredAt);
+        assertThat(journal.findByUserId(3L)).isEmpty();
+    }
+
+    @Test
+    void append_shouldRollOverToNewSegmentsWhenFull() throws IOException {
+        journal = open(DataSize.ofBytes(UserAuditRecord.SIZE * 4), Duration.ofDays(1));
+
+        for (int i = 0; i < 10; i++) {
+            journal.onUserChange(UserChangeEvent.deleted(7L));
+        }
+        journal.flush();
+
+        assertThat(UserAuditReader.segments(directory)).extracting(path -> path.getFileName().toString())
+                .containsExactly(UserAuditReader.segmentName(1), UserAuditReader.segmentName(5), UserAuditReader.segmentName(9));
+        assertThat(journal.findByUserId(7L)).extracting(UserAuditRecord::sequence)
+                .containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+    }
+
+    @Test
+    void open_shouldResumeAfterLastCompleteRecordAndIgnoreTornOne() throws Exception {
+        journal = open(DataSize.ofMegabytes(1), Duration.ofDays(1));
+        journal.onUserChange(UserChangeEvent.deleted(1L));
+        journal.onUserChange(UserChangeEvent.deleted(1L));
+        journal.flush();
+        journal.close();
+
+        Path segment = UserAuditReader.segments(directory).get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            byte[] torn = new byte[UserAuditRecord.SIZE / 2];
+            Arrays.fill(torn, (byte) 0x5A);
+            channel.write(ByteBuffer.wrap(torn), 2L * UserAuditRecord.SIZE);
+        }
+
+        journal = open(DataSize.ofMegabytes(1), Duration.ofDays(1));
+        journal.onUserChange(UserChangeEvent.deleted(1L));
+        journal.flush();
+
+        assertThat(journal.findByUserId(1L)).extracting(UserAuditRecord::sequence).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void rollover_shouldDeleteSegmentsPastRetention() throws IOException {
+        journal = open(DataSize.ofBytes(UserAuditRecord.SIZE * 2), Duration.ofHours(1));
+        for (int i = 0; i < 4; i++) {
+            journal.onUserChange(UserChangeEvent.deleted(1L));
+        }
+        journal.flush();
+        Path oldest = UserAuditReader.segments(directory).get(0);
+        Files.setLastModifiedTime(oldest, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+
+        journal.onUserChange(UserChangeEvent.deleted(1L));
+        journal.flush();
+
+        assertThat(oldest).doesNotExist();
+        assertThat(journal.findByUserId(1L)).extracting(UserAuditRecord::sequence).containsExactly(3L, 4L, 5L);
+    }
+
+    @Test
+    void retention_shouldAlsoRunWithoutRollovers() throws Exception {
+        journal = open(DataSize.ofBytes(UserAuditRecord.SIZE * 2), Duration.ofHours(1), Duration.ofMillis(50));
+        for (int i = 0; i < 4; i++) {
+            journal.onUserChange(UserChangeEvent.deleted(1L));
+        }
+        journal.flush();
+        Path oldest = UserAuditReader.segments(directory).get(0);
+        Files.setLastModifiedTime(oldest, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (Files.exists(oldest) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(oldest).doesNotExist();
+    }
+
+    @Test
+    void onUserChange_shouldDropAndCountInsteadOfThrowingOnceClosed() throws Exception {
+        journal = open(DataSize.ofMegabytes(1), Duration.ofDays(1));
+        journal.close();
+
+        journal.onUserChange(UserChangeEvent.deleted(1L));
+
+        assertThat(meterRegistry.get("blog.audit.dropped").functionCounter().count()).isEqualTo(1);
+        journal = null;
+    }
+
+    @Test
+    void onUserChange_shouldDropAndKeepInterruptStatusWhenInterrupted() throws IOException {
+        journal = open(DataSize.ofMegabytes(1), Duration.ofDays(1));
+
+        Thread.currentThread().interrupt();
+        journal.onUserChange(UserChangeEvent.deleted(1L));
+
+        assertThat(Thread.interrupted()).isTrue();
+        assertThat(meterRegistry.get("blog.audit.dropped").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void open_shouldRejectSecondWriterOnSameDirectory() throws IOException {
+        journal = open(DataSize.ofMegabytes(1), Duration.ofDays(1));
+
+        assertThatThrownBy(() -> open(DataSize.ofMegabytes(1), Duration.ofDays(1)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void onUserChange_shouldAddOnlyMicrosecondsToTheMutation() throws IOException {
+        journal = open(DataSize.ofMegabytes(16), Duration.ofDays(1));
+        int warmUp = 20_000;
+        int measured = 100_000;
+        long[] latencies = new long[measured];
+
+        for (int i = 0; i < warmUp + measured; i++) {
+            UserChangeEvent event = UserChangeEvent.deleted((long) i);
+            long startedAt = System.nanoTime();
+            journal.onUserChange(event);
+            if (i >= warmUp) {
+                latencies[i - warmUp] = System.nanoTime() - startedAt;
+            }
+        }
+        journal.flush();
+
+        Arrays.sort(latencies);
+        assertThat(latencies[measured / 2]).isLessThan(TimeUnit.MICROSECONDS.toNanos(20));
+        assertThat(journal.findByUserId(warmUp + measured - 1L)).hasSize(1);
+    }
+
+    private UserAuditJournal open(DataSize segmentSize, Duration retention) throws IOException {
+        return open(segmentSize, retention, Duration.ofHours(1));
+    }
+
+    private UserAuditJournal open(DataSize segmentSize, Duration retention, Duration retentionCheckInterval)
+            throws IOException {
+        return new UserAuditJournal(directory, segmentSize, retention, 65_536, Duration.ofMillis(10),
+                retentionCheckInterval, meterRegistry);
+    }
+}
@@ -0,0 +1,368 @@
+package com.codehacks.user;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserChangeFeedTest {
+
+    private UserChangeFeed feed;
+
+    @AfterEach
+    void tearDown() {
+        if (feed != null) {
+            feed.shutdown();
+        }
+    }
+
+    @Test
+    void append_shouldFanOutEveryChangeToThousandsOfSubscribers() throws Exception {
+        feed = new UserChangeFeed(1024, 1024, Duration.ofMinutes(1), Duration.ofSeconds(10), 4, 8, 16, false);
+        int subscribers = 5_000;
+        int changes = 50;
+        CountDownLatch delivered = new CountDownLatch(subscribers * changes);
+        List<RecordingSink> sinks = new ArrayList<>();
+        for (int i = 0; i < subscribers; i++) {
+            RecordingSink sink = new RecordingSink(delivered);
+            sinks.add(sink);
+            feed.subscribe(sink, null);
+        }
+
+        for (long id = 1; id <= changes; id++) {
+            feed.append(UserChangeEvent.deleted(id));
+        }
+
+        assertThat(delivered.await(30, TimeUnit.SECONDS)).isTrue();
+        List<Long> expected = LongStream.rangeClosed(1, changes).boxed().toList();
+        assertThat(sinks).allSatisfy(sink -> assertThat(sink.sequences()).isEqualTo(expected));
+    }
+
+    @Test
+    void slowSubscriber_shouldBeDisconnectedWithoutHoldingBackOthers() throws Exception {
+        feed = new UserChangeFeed(256, 128, Duration.ofMillis(50), Duration.ofMillis(200), 2, 8, 16, false);
+        CountDownLatch unblock = new CountDownLatch(1);
+        RecordingSink slow = new RecordingSink(null) {
+            @Override
+            public void send(UserChange change) throws IOException {
+                awaitQuietly(unblock);
+                super.send(change);
+            }
+        };
+        RecordingSink fast = new RecordingSink(null);
+        feed.subscribe(slow, null);
+        feed.subscribe(fast, null);
+
+        try {
+            for (long id = 1; id <= 100; id++) {
+                feed.append(UserChangeEvent.deleted(id));
+            }
+
+            awaitUntil(() -> fast.sequences().size() == 100);
+            awaitUntil(slow::isClosed);
+            assertThat(feed.subscriberCount()).isEqualTo(1);
+        } finally {
+            unblock.countDown();
+        }
+        assertThat(slow.sequences().size()).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    void laggingSubscriber_shouldBeDisconnectedOnceItFallsTooFarBehind() throws Exception {
+        feed = new UserChangeFeed(64, 16, Duration.ofMinutes(1), Duration.ofMinutes(1), 1, 8, 16, false);
+        CountDownLatch unblock = new CountDownLatch(1);
+        RecordingSink slow = new RecordingSink(null) {
+            @Override
+            public void send(UserChange change) throws IOException {
+                awaitQuietly(unblock);
+                super.send(change);
+            }
+        };
+        feed.subscribe(slow, null);
+
+        for (long id = 1; id <= 40; id++) {
+            feed.append(UserChangeEvent.deleted(id));
+        }
+        unblock.countDown();
+
+        awaitUntil(slow::isClosed);
+        assertThat(slow.sequences().size()).isLessThanOrEqualTo(1);
+        assertThat(feed.subscriberCount()).isZero();
+    }
+
+    @Test
+    void subscribe_shouldResumeAfterGivenSequence() throws Exception {
+        feed = new UserChangeFeed(64, 64, Duration.ofMinutes(1), Duration.ofSeconds(10), 1, 8, 16, false);
+        for (long id = 1; id <= 10; id++) {
+            feed.append(UserChangeEvent.deleted(id));
+        }
+        RecordingSink sink = new RecordingSink(null);
+
+        feed.subscribe(sink, feed.epoch() + ":4");
+
+        awaitUntil(() -> sink.sequences().size() == 6);
+        assertThat(sink.sequences()).containsExactly(5L, 6L, 7L, 8L, 9L, 10L);
+        assertThat(sink.resets()).isEmpty();
+    }
+
+    @Test
+    void subscribe_shouldResetWhenResumeSequenceIsNoLongerRetained() throws Exception {
+        feed = new UserChangeFeed(8, 8, Duration.ofMinutes(1), Duration.ofSeconds(10), 1, 8, 16, false);
+        for (long id = 1; id <= 20; id++) {
+            feed.append(UserChangeEvent.deleted(id));
+        }
+        RecordingSink sink = new RecordingSink(null);
+
+        feed.subscribe(sink, feed.epoch() + ":2");
+        feed.append(UserChangeEvent.deleted(21L));
+
+        awaitUntil(() -> sink.sequences().size() == 1);
+        assertThat(sink.resets()).containsExactly(feed.epoch() + ":20");
+        assertThat(sink.sequences()).containsExactly(21L);
+    }
+
+    @Test
+    void subscribe_shouldResetWhenResumeIdIsFromAnotherEpoch() throws Exception {
+        feed = new UserChangeFeed(64, 64, Duration.ofMinutes(1), Duration.ofSeconds(10), 1, 8, 16, false);
+        for (long id = 1; id <= 10; id++) {
+            feed.append(UserChangeEvent.deleted(id));
+        }
+        RecordingSink sink = new RecordingSink(null);
+
+        feed.subscribe(sink, "previous-boot:4");
+        feed.append(UserChangeEvent.deleted(11L));
+
+        awaitUntil(() -> sink.sequences().size() == 1);
+        assertThat(sink.resets()).containsExactly(feed.epoch() + ":10");
+        assertThat(sink.sequences()).containsExactly(11L);
+    }
+
+    @Test
+    void stalledSubscribers_shouldNotBlockHeartbeatsOrDeliveryWhenCloseWaitsForSend() throws Exception {
+        feed = new UserChangeFeed(256, 128, Duration.ofMillis(50), Duration.ofMillis(200), 2, 8, 16, false);
+        CountDownLatch unblock = new CountDownLatch(1);
+        List<RecordingSink> stalled = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            // Like SseEmitter, send and close share one monitor, so close waits for the stalled send.
+            RecordingSink sink = new RecordingSink(null) {
+                @Override
+                public synchronized void send(UserChange change) throws IOException {
+                    awaitQuietly(unblock);
+                    super.send(change);
+                }
+
+                @Override
+                public synchronized void close() {
+                    super.close();
+                }
+            };
+            stalled.add(sink);
+            feed.subscribe(sink, null);
+        }
+        RecordingSink fast = new RecordingSink(null);
+        feed.subscribe(fast, null);
+
+        try {
+            for (long id = 1; id <= 100; id++) {
+                feed.append(UserChangeEvent.deleted(id));
+            }
+
+            awaitUntil(() -> fast.sequences().size() == 100);
+            awaitUntil(() -> feed.subscriberCount() == 1);
+            int heartbeats = fast.heartbeats();
+            awaitUntil(() -> fast.heartbeats() >= heartbeats + 2);
+        } finally {
+            unblock.countDown();
+        }
+        awaitUntil(() -> stalled.stream().allMatch(RecordingSink::isClosed));
+    }
+
+    @Test
+    void stalledSubscribers_shouldNotStopDeliveryWhenTheyHoldEveryWriterThread() throws Exception {
+        feed = new UserChangeFeed(256, 128, Duration.ofMillis(50), Duration.ofMillis(200), 2, 8, 16, false);
+        CountDownLatch unblock = new CountDownLatch(1);
+        List<RecordingSink> stalled = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            RecordingSink sink = new RecordingSink(null) {
+                @Override
+                public synchronized void send(UserChange change) throws IOException {
+                    awaitQuietly(unblock);
+                    super.send(change);
+                }
+
+                @Override
+                public synchronized void close() {
+                    super.close();
+                }
+            };
+            stalled.add(sink);
+            feed.subscribe(sink, null);
+        }
+        feed.append(UserChangeEvent.deleted(0L));
+        RecordingSink fast = new RecordingSink(null);
+        feed.subscribe(fast, null);
+
+        try {
+            for (long id = 1; id <= 100; id++) {
+                feed.append(UserChangeEvent.deleted(id));
+            }
+
+            awaitUntil(() -> fast.sequences().size() == 100);
+            awaitUntil(() -> feed.subscriberCount() == 1);
+            int heartbeats = fast.heartbeats();
+            awaitUntil(() -> fast.heartbeats() >= heartbeats + 2);
+        } finally {
+            unblock.countDown();
+        }
+        awaitUntil(() -> stalled.stream().allMatch(RecordingSink::isClosed));
+    }
+
+    @Test
+    void idleSubscriber_shouldReceiveHeartbeats() throws Exception {
+        feed = new UserChangeFeed(8, 8, Duration.ofMillis(50), Duration.ofSeconds(10), 1, 8, 16, false);
+        RecordingSink sink = new RecordingSink(null);
+
+        feed.subscribe(sink, null);
+
+        awaitUntil(() -> sink.heartbeats() >= 2);
+    }
+
+    @Test
+    void accept_shouldResetSubscribersWhenRelayedSequencesSkip() throws Exception {
+        feed = new UserChangeFeed(8, 8, Duration.ofMinutes(1), Duration.ofSeconds(10), 1, 8, 16, true);
+        feed.accept("e1", 1L, UserChangeEvent.deleted(1L));
+        RecordingSink sink = new RecordingSink(null);
+        feed.subscribe(sink, null);
+
+        feed.accept("e1", 2L, UserChangeEvent.deleted(2L));
+        feed.accept("e1", 5L, UserChangeEvent.deleted(5L));
+
+        awaitUntil(() -> sink.sequences().size() == 2);
+        assertThat(sink.sequences()).containsExactly(2L, 5L);
+        assertThat(sink.resets()).containsExactly("e1:4");
+    }
+
+    @Test
+    void accept_shouldRotateEpochWhenRelayedSequenceGoesBack() throws Exception {
+        feed = new UserChangeFeed(8, 8, Duration.ofMinutes(1), Duration.ofSeconds(10), 1, 8, 16, true);
+        for (long sequence = 1; sequence <= 3; sequence++) {
+            feed.accept("e1", sequence, UserChangeEvent.deleted(sequence));
+        }
+        RecordingSink sink = new RecordingSink(null);
+        feed.subscribe(sink, null);
+
+        feed.accept("e1", 1L, UserChangeEvent.deleted(4L));
+
+        awaitUntil(() -> sink.sequences().size() == 1);
+        assertThat(feed.epoch()).startsWith("e1.");
+        assertThat(sink.resets()).containsExactly(feed.epoch() + ":0");
+        assertThat(sink.sequences()).containsExactly(1L);
+    }
+
+    @Test
+    void subscribe_shouldResumeRelayedClientOnlyWhenNextChangeIsRetained() throws Exception {
+        feed = new UserChangeFeed(8, 8, Duration.ofMinutes(1), Duration.ofSeconds(10), 1, 8, 16, true);
+        feed.accept("e1", 500L, UserChangeEvent.deleted(1L));
+        feed.accept("e1", 501L, UserChangeEvent.deleted(2L));
+        RecordingSink behind = new RecordingSink(null);
+        RecordingSink caughtUp = new RecordingSink(null);
+
+        feed.subscribe(behind, "e1:3");
+        feed.subscribe(caughtUp, "e1:499");
+        feed.accept("e1", 502L, UserChangeEvent.deleted(3L));
+
+        awaitUntil(() -> behind.sequences().size() == 1 && caughtUp.sequences().size() == 3);
+        assertThat(behind.resets()).containsExactly("e1:501");
+        assertThat(behind.sequences()).containsExactly(502L);
+        assertThat(caughtUp.resets()).isEmpty();
+        assertThat(caughtUp.sequences()).containsExactly(500L, 501L, 502L);
+    }
+
+    @Test
+    void onUserChange_shouldNotAppendWhenRelayed() {
+        feed = new UserChangeFeed(8, 8, Duration.ofMinutes(1), Duration.ofSeconds(10), 1, 8, 16, true);
+        feed.onUserChange(UserChangeEvent.deleted(1L));
+        feed.accept("e1", 1L, UserChangeEvent.deleted(2L));
+
+        assertThat(feed.append(UserChangeEvent.deleted(3L))).isEqualTo(2L);
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met within 10 seconds");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class RecordingSink implements UserChangeSink {
+
+        private final CountDownLatch delivered;
+        private final List<Long> sequences = new ArrayList<>();
+        private final List<String> resets = new ArrayList<>();
+        private int heartbeats;
+        private volatile boolean closed;
+
+        RecordingSink(CountDownLatch delivered) {
+            this.delivered = delivered;
+        }
+
+        @Override
+        public synchronized void send(UserChange change) throws IOException {
+            sequences.add(change.sequence());
+            if (delivered != null) {
+                delivered.countDown();
+            }
+        }
+
+        @Override
+        public synchronized void reset(String eventId) {
+            resets.add(eventId);
+        }
+
+        @Override
+        public synchronized void heartbeat() {
+            heartbeats++;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        synchronized List<Long> sequences() {
+            return List.copyOf(sequences);
+        }
+
+        synchronized List<String> resets() {
+            return List.copyOf(resets);
+        }
+
+        synchronized int heartbeats() {
+            return heartbeats;
+        }
+
+        boolean isClosed() {
+            return closed;
+        }
+    }
+}
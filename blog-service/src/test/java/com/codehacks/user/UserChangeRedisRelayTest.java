@@ -0,0 +1,65 @@
+package com.codehacks.user;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class UserChangeRedisRelayTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private RedisConnectionFactory connectionFactory;
+
+    @Mock
+    private UserChangeFeed userChangeFeed;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private UserChangeRedisRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        relay = new UserChangeRedisRelay(redisTemplate, connectionFactory, objectMapper, userChangeFeed, "changes");
+    }
+
+    @Test
+    void onMessage_shouldAppendRelayedChangeWithItsEpochAndSequence() throws Exception {
+        UserResponse user = new UserResponse(7L, "user7", "user7@email.com", LocalDateTime.now());
+        UserChangeEvent event = UserChangeEvent.created(user);
+        byte[] body = ("a1b2c3d4:42:" + objectMapper.writeValueAsString(event)).getBytes(StandardCharsets.UTF_8);
+
+        relay.onMessage(new DefaultMessage("changes".getBytes(StandardCharsets.UTF_8), body), null);
+
+        verify(userChangeFeed).accept(eq("a1b2c3d4"), eq(42L), eq(event));
+    }
+
+    @Test
+    void onMessage_shouldDropMalformedMessages() {
+        byte[] body = "not-a-change".getBytes(StandardCharsets.UTF_8);
+
+        relay.onMessage(new DefaultMessage("changes".getBytes(StandardCharsets.UTF_8), body), null);
+
+        verify(userChangeFeed, never()).accept(anyString(), anyLong(), any());
+    }
+}
@@ -0,0 +1,119 @@
+package com.codehacks.user;
+
+import com.codehacks.contract.client.BlogUserClient;
+import com.codehacks.contract.invoker.ApiException;
+import com.codehacks.contract.model.UserBatchResponse;
+import com.codehacks.contract.model.UserRequest;
+import com.codehacks.contract.model.UserResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs the generated blog-contract client against a locally booted service to
+ * check that the spec it is generated from matches the real API.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Testcontainers
+@Import(TestSecurityConfig.class)
+class UserClientContractTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16.8-alpine")
+            .withDatabaseName("userTestDB")
+            .withUsername("test")
+            .withPassword("test")
+            .withReuse(true);
+
+    @DynamicPropertySource
+    static void overrideProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private BlogUserClient client;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        client = BlogUserClient.builder("http://localhost:" + port)
+                .hedgeDelay(Duration.ofMillis(200))
+                .build();
+    }
+
+    @Test
+    void createUser_andReadItBack() {
+        UserResponse created = client.createUser(request("contractUser")).join();
+
+        UserResponse fetched = client.getUserById(created.getId()).join();
+
+        assertThat(fetched.getUsername()).isEqualTo("contractUser");
+        assertThat(fetched.getEmail()).isEqualTo("contractUser@email.com");
+        assertThat(fetched.getCreatedAt()).isNotNull();
+    }
+
+    @Test
+    void updateUser_andDeleteUser() {
+        UserResponse created = client.createUser(request("before")).join();
+
+        UserResponse updated = client.updateUser(created.getId(), request("after")).join();
+        client.deleteUser(created.getId()).join();
+
+        assertThat(updated.getUsername()).isEqualTo("after");
+        assertThatThrownBy(() -> client.getUserById(created.getId()).join())
+                .hasCauseInstanceOf(ApiException.class);
+    }
+
+    @Test
+    void getUsersByIds_shouldReportMissingIds() {
+        UserResponse created = client.createUser(request("batchUser")).join();
+
+        UserBatchResponse batch = client.getUsersByIds(List.of(created.getId(), 99999L)).join();
+
+        assertThat(batch.getUsers()).extracting(UserResponse::getUsername)
+                .containsExactly("batchUser");
+        assertThat(batch.getMissingIds()).containsExactly(99999L);
+    }
+
+    @Test
+    void streamAllUsers_shouldDecodeEveryUser() {
+        for (int i = 0; i < 20; i++) {
+            client.createUser(request("streamed" + i)).join();
+        }
+
+        try (Stream<UserResponse> users = client.streamAllUsers()) {
+            assertThat(users.map(UserResponse::getUsername))
+                    .hasSize(20)
+                    .allMatch(username -> username.startsWith("streamed"));
+        }
+    }
+
+    private static UserRequest request(String username) {
+        return new UserRequest()
+                .username(username)
+                .email(username + "@email.com")
+                .password("password");
+    }
+}
@@ -141,4 +141,25 @@ class UserControllerTest {
         ResponseEntity<UserResponse> result = userController.updateProfile(null, sampleRequest);
         assertThat(result.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
     }
+
+    @Test
+    void getUsersByIds_shouldReturnBatchFromService() {
+        UserBatchResponse batch = new UserBatchResponse(List.of(sampleResponse), List.of(2L));
+        when(userService.getUsersByIds(List.of(1L, 2L))).thenReturn(batch);
+
+        UserBatchResponse result = userController.getUsersByIds(List.of(1L, 2L));
+
+        assertThat(result.users()).containsExactly(sampleResponse);
+        assertThat(result.missingIds()).containsExactly(2L);
+    }
+
+    @Test
+    void getUsersByIdsFromBody_shouldReturnBatchFromService() {
+        UserBatchResponse batch = new UserBatchResponse(List.of(sampleResponse), List.of());
+        when(userService.getUsersByIds(List.of(1L))).thenReturn(batch);
+
+        UserBatchResponse result = userController.getUsersByIds(new UserBatchRequest(List.of(1L)));
+
+        assertThat(result.users()).containsExactly(sampleResponse);
+    }
 } 
\ No newline at end of file
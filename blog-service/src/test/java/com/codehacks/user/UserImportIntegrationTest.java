@@ -0,0 +1,173 @@
+package com.codehacks.user;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Testcontainers
+class UserImportIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16.8-alpine")
+            .withDatabaseName("userTestDB")
+            .withUsername("test")
+            .withPassword("test")
+            .withReuse(true);
+
+    @DynamicPropertySource
+    static void overrideProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    private static final String INPUT = """
+            username,email,password
+            existing,other@email.com,pass
+            imported,imported@email.com,pass
+            imported,again@email.com,pass
+            ,missing@email.com,pass
+            second,second@email.com,pass
+            """;
+
+    @Autowired
+    private UserImporter userImporter;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        jdbcTemplate.execute("DROP TABLE IF EXISTS users_import_staging, users_import_progress");
+        userService.createUser(new UserRequest("existing", "existing@email.com", "pass"));
+    }
+
+    @Test
+    void importUsers_shouldMergeNewUsersAndSkipDuplicatesAndRejects() throws Exception {
+        StringWriter rejects = new StringWriter();
+        UserImporter.Options options = new UserImporter.Options(UserImportReader.Format.CSV, false, 2, 2);
+
+        UserImportReport report = userImporter.importUsers("test", new StringReader(INPUT), options, rejects);
+
+        assertThat(report.read()).isEqualTo(5);
+        assertThat(report.staged()).isEqualTo(4);
+        assertThat(report.rejected()).isEqualTo(1);
+        assertThat(report.inserted()).isEqualTo(2);
+        assertThat(report.duplicates()).isEqualTo(2);
+        assertThat(rejects.toString()).startsWith("5\t");
+        assertThat(userRepository.findByUsername("imported")).hasValueSatisfying(user -> {
+            assertThat(user.getEmail()).isEqualTo("imported@email.com");
+            assertThat(passwordEncoder.matches("pass", user.getPassword())).isTrue();
+        });
+        assertThat(userRepository.findByUsername("second")).isPresent();
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM users_import_staging", Long.class)).isZero();
+    }
+
+    @Test
+    void importUsers_shouldResumeInterruptedJobAfterLastCheckpointedLine() throws Exception {
+        UserImporter.Options options = new UserImporter.Options(UserImportReader.Format.CSV, false, 2, 2);
+        // Fails once the first batch (lines 2 and 3) has been read, like a crash mid-import.
+        int firstBatchEnd = INPUT.indexOf("imported,again");
+        Reader interrupted = new FilterReader(new StringReader(INPUT.substring(0, firstBatchEnd))) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                if (read < 0) {
+                    throw new IOException("input lost");
+                }
+                return read;
+            }
+        };
+
+        assertThatThrownBy(() -> userImporter.importUsers("interrupted", interrupted, options, new StringWriter()))
+                .isInstanceOf(IOException.class);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT last_line FROM users_import_progress WHERE job = 'interrupted'", Long.class)).isEqualTo(3);
+
+        StringWriter rejects = new StringWriter();
+        UserImportReport resumed = userImporter.importUsers("interrupted", new StringReader(INPUT), options, rejects);
+
+        assertThat(resumed.read()).isEqualTo(5);
+        assertThat(resumed.inserted()).isEqualTo(2);
+        assertThat(rejects.toString()).startsWith("5\t");
+        assertThat(userRepository.findByUsername("imported"))
+                .hasValueSatisfying(user -> assertThat(user.getEmail()).isEqualTo("imported@email.com"));
+        assertThat(userRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void importUsers_shouldResumeFromCheckpointAndNotRepeatCompletedJobs() throws Exception {
+        UserImporter.Options options = new UserImporter.Options(UserImportReader.Format.CSV, false, 2, 2);
+        userImporter.importUsers("resume", new StringReader(INPUT), options, new StringWriter());
+
+        UserImportReport rerun = userImporter.importUsers("resume", new StringReader(INPUT), options, new StringWriter());
+
+        assertThat(rerun.inserted()).isEqualTo(2);
+        assertThat(userRepository.count()).isEqualTo(3);
+    }
+
+    @Test
+    void importUsers_shouldRejectPreHashedPasswordsTheEncoderDoesNotAccept() throws Exception {
+        String hash = passwordEncoder.encode("pass");
+        String input = "username,email,password\n"
+                + "hashed,hashed@email.com," + hash + "\n"
+                + "legacy,legacy@email.com,$2x$" + hash.substring(4) + "\n";
+        StringWriter rejects = new StringWriter();
+        UserImporter.Options options = new UserImporter.Options(UserImportReader.Format.CSV, true, 2, 2);
+
+        UserImportReport report = userImporter.importUsers("hashed", new StringReader(input), options, rejects);
+
+        assertThat(report.inserted()).isEqualTo(1);
+        assertThat(report.rejected()).isEqualTo(1);
+        assertThat(rejects.toString()).startsWith("3\t");
+        assertThat(userRepository.findByUsername("hashed"))
+                .hasValueSatisfying(user -> assertThat(passwordEncoder.matches("pass", user.getPassword())).isTrue());
+    }
+
+    @Test
+    void importUsers_shouldSkipDuplicatesThatDifferOnlyInCase() throws Exception {
+        String input = """
+                username,email,password
+                EXISTING,fresh@email.com,pass
+                fresh,Existing@Email.com,pass
+                Mixed,mixed@email.com,pass
+                mixed,other@email.com,pass
+                """;
+        UserImporter.Options options = new UserImporter.Options(UserImportReader.Format.CSV, false, 2, 2);
+
+        UserImportReport report = userImporter.importUsers("case", new StringReader(input), options, new StringWriter());
+
+        assertThat(report.inserted()).isEqualTo(1);
+        assertThat(report.duplicates()).isEqualTo(3);
+        assertThat(userRepository.findByUsername("Mixed")).isPresent();
+        assertThat(userRepository.count()).isEqualTo(2);
+    }
+}
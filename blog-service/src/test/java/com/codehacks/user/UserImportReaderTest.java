@@ -0,0 +1,132 @@
+package com.codehacks.user;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class UserImportReaderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void csv_shouldReadRecordsByHeaderColumns() throws IOException {
+        String input = """
+                email,password,username,created_at
+                "one@email.com","p,ass","one",2024-01-02T03:04:05
+                two@email.com,"say ""hi\"\"",two,
+                """;
+
+        List<UserImportRecord> records = readAll(input, UserImportReader.Format.CSV);
+
+        assertThat(records).containsExactly(
+                UserImportRecord.of(2, "one", "one@email.com", "p,ass", LocalDateTime.of(2024, 1, 2, 3, 4, 5)),
+                UserImportRecord.of(3, "two", "two@email.com", "say \"hi\"", null));
+    }
+
+    @Test
+    void csv_shouldRejectInvalidLines() throws IOException {
+        String input = """
+                username,email,password
+                one,not-an-email,pass
+                ,two@email.com,pass
+                "three,three@email.com,pass
+                """;
+
+        List<UserImportRecord> records = readAll(input, UserImportReader.Format.CSV);
+
+        assertThat(records).extracting(UserImportRecord::lineNumber).containsExactly(2L, 3L, 4L);
+        assertThat(records).allMatch(UserImportRecord::isRejected);
+    }
+
+    @Test
+    void csv_shouldRejectValuesTheUsersTableCannotStore() throws IOException {
+        String input = "username,email,password\n"
+                + "a".repeat(256) + ",long@email.com,pass\n"
+                + "ok," + "e".repeat(250) + "@email.com,pass\n"
+                + "nul\0name,nul@email.com,pass\n"
+                + "a".repeat(255) + ",max@email.com,pass\n";
+
+        List<UserImportRecord> records = readAll(input, UserImportReader.Format.CSV);
+
+        assertThat(records).extracting(UserImportRecord::isRejected).containsExactly(true, true, true, false);
+    }
+
+    @Test
+    void csv_shouldRequireHeaderColumns() {
+        assertThrows(IllegalArgumentException.class,
+                () -> UserImportReader.open(new StringReader("name,mail\n"), UserImportReader.Format.CSV, objectMapper));
+    }
+
+    @Test
+    void ndjson_shouldReadRecordsAndRejectMalformedLines() throws IOException {
+        String input = """
+                {"username":"one","email":"one@email.com","password":"pass"}
+
+                {"username":"two",
+                ["not","an","object"]
+                """;
+
+        List<UserImportRecord> records = readAll(input, UserImportReader.Format.NDJSON);
+
+        assertThat(records.get(0)).isEqualTo(UserImportRecord.of(1, "one", "one@email.com", "pass", null));
+        assertThat(records.subList(1, 3)).extracting(UserImportRecord::lineNumber).containsExactly(3L, 4L);
+        assertThat(records.subList(1, 3)).allMatch(UserImportRecord::isRejected);
+    }
+
+    @Test
+    void skipTo_shouldResumeAfterCheckpointLine() throws IOException {
+        String input = """
+                username,email,password
+                one,one@email.com,pass
+                two,two@email.com,pass
+                three,three@email.com,pass
+                """;
+
+        try (UserImportReader reader = UserImportReader.open(new StringReader(input), UserImportReader.Format.CSV, objectMapper)) {
+            reader.skipTo(3);
+            UserImportRecord next = reader.next();
+
+            assertThat(next.username()).isEqualTo("three");
+            assertThat(next.lineNumber()).isEqualTo(4L);
+            assertThat(reader.next()).isNull();
+        }
+    }
+
+    @Test
+    void formatOf_shouldDetectNdjsonByExtension() {
+        assertThat(UserImportReader.formatOf("users.ndjson")).isEqualTo(UserImportReader.Format.NDJSON);
+        assertThat(UserImportReader.formatOf("users.JSONL")).isEqualTo(UserImportReader.Format.NDJSON);
+        assertThat(UserImportReader.formatOf("users.csv")).isEqualTo(UserImportReader.Format.CSV);
+    }
+
+    @Test
+    void toCsv_shouldQuoteFieldsForCopy() {
+        List<UserImportRecord> records = List.of(
+                UserImportRecord.of(2, "o\"ne", "one@email.com", "$2a$hash", LocalDateTime.of(2024, 1, 2, 3, 4, 5)),
+                UserImportRecord.of(3, "two", "two@email.com", "$2a$hash", null));
+
+        assertThat(UserImporter.toCsv("job", records)).isEqualTo("""
+                "job",2,"o""ne","one@email.com","$2a$hash",2024-01-02T03:04:05
+                "job",3,"two","two@email.com","$2a$hash",
+                """);
+    }
+
+    private List<UserImportRecord> readAll(String input, UserImportReader.Format format) throws IOException {
+        List<UserImportRecord> records = new ArrayList<>();
+        try (UserImportReader reader = UserImportReader.open(new StringReader(input), format, objectMapper)) {
+            UserImportRecord record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+}
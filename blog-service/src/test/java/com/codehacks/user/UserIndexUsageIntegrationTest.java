@@ -0,0 +1,132 @@
+package com.codehacks.user;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the {@link UserRepository} queries, captures the SQL Hibernate generated
+ * for them and checks that Postgres plans that SQL against the indexes from the
+ * migrations.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.codehacks.user.UserIndexUsageIntegrationTest$CapturedSql")
+@Testcontainers
+class UserIndexUsageIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16.8-alpine")
+            .withDatabaseName("userTestDB")
+            .withUsername("test")
+            .withPassword("test")
+            .withReuse(true);
+
+    @DynamicPropertySource
+    static void overrideProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void seedUsers() {
+        userRepository.deleteAll();
+        jdbcTemplate.update("""
+                INSERT INTO users (username, email, password, created_at)
+                SELECT 'User' || n, 'User' || n || '@Email.com', 'hash', LOCALTIMESTAMP - n * INTERVAL '1 minute'
+                FROM generate_series(1, 5000) AS n""");
+        jdbcTemplate.execute("VACUUM ANALYZE users");
+    }
+
+    @Test
+    void migrations_shouldCreateValidLookupIndexes() {
+        List<String> indexes = jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid
+                WHERE i.indrelid = 'users'::regclass AND i.indisvalid""", String.class);
+
+        assertThat(indexes).contains("users_username_lower_idx", "users_email_lower_idx", "users_created_at_idx");
+    }
+
+    @Test
+    void existsByUsernameIgnoreCase_shouldUseLowerUsernameIndex() {
+        boolean exists = userRepository.existsByUsernameIgnoreCase("user42");
+
+        assertThat(exists).isTrue();
+        assertThat(explainLastQuery("user42")).contains("users_username_lower_idx");
+    }
+
+    @Test
+    void existsByEmailIgnoreCase_shouldUseLowerEmailIndex() {
+        boolean exists = userRepository.existsByEmailIgnoreCase("USER42@email.com");
+
+        assertThat(exists).isTrue();
+        assertThat(explainLastQuery("USER42@email.com")).contains("users_email_lower_idx");
+    }
+
+    @Test
+    void existsByUsernameIgnoreCase_shouldToleratePreExistingCaseVariants() {
+        jdbcTemplate.update("INSERT INTO users (username, email, password, created_at) "
+                + "VALUES ('USER42', 'other42@email.com', 'hash', LOCALTIMESTAMP)");
+
+        assertThat(userRepository.existsByUsernameIgnoreCase("User42")).isTrue();
+        assertThat(userRepository.existsByUsernameIgnoreCase("User5001")).isFalse();
+    }
+
+    @Test
+    void findAllUserResponses_shouldBeServedByIndexOnlyScan() {
+        List<UserResponse> users = userRepository.findAllUserResponses();
+
+        assertThat(users)
+                .hasSize(5000)
+                .isSortedAccordingTo((a, b) -> a.createdAt().compareTo(b.createdAt()));
+        assertThat(explainLastQuery()).contains("Index Only Scan using users_created_at_idx");
+    }
+
+    /**
+     * EXPLAINs the last statement Hibernate sent, exactly as sent, binding the
+     * given values to its parameters.
+     */
+    private String explainLastQuery(Object... parameters) {
+        String sql = CapturedSql.last();
+        assertThat(sql).as("captured SQL").isNotNull();
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, parameters));
+    }
+
+    /**
+     * Registered as Hibernate's statement inspector, which sees every SQL string
+     * Hibernate prepares after it has been rendered for Postgres.
+     */
+    public static class CapturedSql implements StatementInspector {
+
+        private static final AtomicReference<String> LAST = new AtomicReference<>();
+
+        @Override
+        public String inspect(String sql) {
+            LAST.set(sql);
+            return sql;
+        }
+
+        static String last() {
+            return LAST.get();
+        }
+    }
+}
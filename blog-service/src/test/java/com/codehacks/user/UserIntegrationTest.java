@@ -86,4 +86,15 @@ class UserIntegrationTest {
 
         org.junit.jupiter.api.Assertions.assertThrows(IllegalArgumentException.class, () -> userService.createUser(dupeEmail));
     }
+
+    @Test
+    void duplicateUsernameOrEmailInOtherCase_shouldThrow() {
+        userService.createUser(new UserRequest("CaseUser", "Case@Email.com", "password"));
+
+        UserRequest dupeUsername = new UserRequest("caseuser", "other@email.com", "password");
+        org.junit.jupiter.api.Assertions.assertThrows(IllegalArgumentException.class, () -> userService.createUser(dupeUsername));
+
+        UserRequest dupeEmail = new UserRequest("other", "case@email.COM", "password");
+        org.junit.jupiter.api.Assertions.assertThrows(IllegalArgumentException.class, () -> userService.createUser(dupeEmail));
+    }
 } 
\ No newline at end of file
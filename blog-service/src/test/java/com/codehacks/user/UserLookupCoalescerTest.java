@@ -0,0 +1,127 @@
+package com.codehacks.user;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserLookupCoalescerTest {
+
+    private final UserResponse sampleResponse = new UserResponse(1L, "user1", "user1@email.com", LocalDateTime.now());
+
+    @Test
+    void lookup_shouldLoadOnceForConcurrentCallers() throws Exception {
+        UserLookupCoalescer coalescer = new UserLookupCoalescer(Duration.ZERO);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Optional<UserResponse>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> coalescer.lookup(1L, id -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return Optional.of(sampleResponse);
+                })));
+            }
+            Thread.sleep(200);
+            release.countDown();
+
+            for (Future<Optional<UserResponse>> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).contains(sampleResponse);
+            }
+            assertThat(loads).hasValue(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void lookup_shouldReleaseConcurrentCallersWhenLoaderThrowsError() throws Exception {
+        UserLookupCoalescer coalescer = new UserLookupCoalescer(Duration.ofMinutes(1));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Optional<UserResponse>> failing = executor.submit(() -> coalescer.lookup(1L, id -> {
+                loading.countDown();
+                await(release);
+                throw new StackOverflowError();
+            }));
+            await(loading);
+            Future<Optional<UserResponse>> waiting = executor.submit(() -> coalescer.lookup(1L, id -> Optional.empty()));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertThatThrownBy(() -> failing.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+            assertThatThrownBy(() -> waiting.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+            assertThat(coalescer.lookup(1L, id -> Optional.of(sampleResponse))).contains(sampleResponse);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void lookup_shouldReuseResultWithinWindow() {
+        UserLookupCoalescer coalescer = new UserLookupCoalescer(Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        coalescer.lookup(1L, id -> Optional.of(countLoad(loads)));
+        coalescer.lookup(1L, id -> Optional.of(countLoad(loads)));
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void lookup_shouldDropCompletedLookupsOnceTheWindowHasPassed() throws InterruptedException {
+        UserLookupCoalescer coalescer = new UserLookupCoalescer(Duration.ofMillis(20));
+        for (long id = 0; id < 5000; id++) {
+            coalescer.lookup(id, key -> Optional.of(sampleResponse));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalescer.size() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(coalescer.size()).isZero();
+    }
+
+    @Test
+    void invalidate_shouldForceReload() {
+        UserLookupCoalescer coalescer = new UserLookupCoalescer(Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        coalescer.lookup(1L, id -> Optional.of(countLoad(loads)));
+        coalescer.invalidate(1L);
+        coalescer.lookup(1L, id -> Optional.of(countLoad(loads)));
+
+        assertThat(loads).hasValue(2);
+    }
+
+    private UserResponse countLoad(AtomicInteger loads) {
+        loads.incrementAndGet();
+        return sampleResponse;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
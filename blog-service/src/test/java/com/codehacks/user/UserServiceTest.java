@@ -5,13 +5,20 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -23,6 +30,9 @@ class UserServiceTest {
 
     @Mock
     private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
     
     @InjectMocks
     private UserService userService;
@@ -30,7 +40,7 @@ class UserServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        userService = new UserService(userRepository, passwordEncoder);
+        userService = new UserService(userRepository, passwordEncoder, new UserLookupCoalescer(Duration.ZERO), eventPublisher);
     }
 
     @Test
@@ -49,32 +59,32 @@ class UserServiceTest {
         assertThat(response.email()).isEqualTo("user1@email.com");
         verify(passwordEncoder).encode("pass");
         verify(userRepository).save(any(User.class));
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof UserChangeEvent change
+                && change.type() == UserChangeEvent.Type.CREATED && change.user().username().equals("user1")));
     }
 
     @Test
     void createUser_shouldThrowIfUsernameExists() {
         UserRequest request = new UserRequest("user1", "user1@email.com", "pass");
-        when(userRepository.findByUsername("user1")).thenReturn(Optional.of(new User()));
+        when(userRepository.existsByUsernameIgnoreCase("user1")).thenReturn(true);
         Exception ex = assertThrows(IllegalArgumentException.class, () -> userService.createUser(request));
         assertThat(ex.getMessage()).isEqualTo("Username already exists");
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
     }
 
     @Test
     void createUser_shouldThrowIfEmailExists() {
         UserRequest request = new UserRequest("user1", "user1@email.com", "pass");
-        when(userRepository.findByUsername("user1")).thenReturn(Optional.empty());
-        when(userRepository.findByEmail("user1@email.com")).thenReturn(Optional.of(new User()));
+        when(userRepository.existsByUsernameIgnoreCase("user1")).thenReturn(false);
+        when(userRepository.existsByEmailIgnoreCase("user1@email.com")).thenReturn(true);
         Exception ex = assertThrows(IllegalArgumentException.class, () -> userService.createUser(request));
         assertThat(ex.getMessage()).isEqualTo("Email already exists");
     }
 
     @Test
-    void getAllUsers_shouldReturnMappedResponses() {
-        User user = new User();
-        user.setId(1L);
-        user.setUsername("user1");
-        user.setEmail("user1@email.com");
-        when(userRepository.findAll()).thenReturn(List.of(user));
+    void getAllUsers_shouldReturnResponsesFromRepository() {
+        UserResponse user = new UserResponse(1L, "user1", "user1@email.com", null);
+        when(userRepository.findAllUserResponses()).thenReturn(List.of(user));
 
         List<UserResponse> users = userService.getAllUsers();
         assertThat(users).hasSize(1);
@@ -117,6 +127,8 @@ class UserServiceTest {
         assertThat(result.get().username()).isEqualTo("new");
         verify(passwordEncoder).encode("newpass");
         verify(userRepository).save(user);
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof UserChangeEvent change
+                && change.type() == UserChangeEvent.Type.UPDATED && change.userId().equals(1L)));
     }
 
     @Test
@@ -129,7 +141,59 @@ class UserServiceTest {
 
     @Test
     void deleteUser_shouldCallRepository() {
+        when(userRepository.deleteUserById(1L)).thenReturn(1);
         userService.deleteUser(1L);
-        verify(userRepository).deleteById(1L);
+        verify(userRepository).deleteUserById(1L);
+        verify(eventPublisher).publishEvent(argThat((Object event) -> event instanceof UserChangeEvent change
+                && change.type() == UserChangeEvent.Type.DELETED && change.userId().equals(1L)));
+    }
+
+    @Test
+    void deleteUser_shouldNotPublishWhenUserDoesNotExist() {
+        when(userRepository.deleteUserById(1L)).thenReturn(0);
+        userService.deleteUser(1L);
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void getUsersByIds_shouldPreserveOrderDedupeAndReportMissing() {
+        when(userRepository.findAllById(List.of(3L, 1L, 2L))).thenReturn(List.of(userWithId(1L), userWithId(3L)));
+
+        UserBatchResponse result = userService.getUsersByIds(List.of(3L, 1L, 3L, 2L, 1L));
+
+        assertThat(result.users()).extracting(UserResponse::id).containsExactly(3L, 1L);
+        assertThat(result.missingIds()).containsExactly(2L);
+    }
+
+    @Test
+    void getUsersByIds_shouldQueryInChunks() {
+        List<Long> ids = LongStream.rangeClosed(1, UserService.ID_CHUNK_SIZE * 2L + 1).boxed().toList();
+        when(userRepository.findAllById(anyIterable())).thenReturn(List.of());
+
+        UserBatchResponse result = userService.getUsersByIds(ids);
+
+        assertThat(result.missingIds()).hasSize(ids.size());
+        verify(userRepository, times(3)).findAllById(anyIterable());
+    }
+
+    @Test
+    void getUsersByIds_shouldRejectTooManyIds() {
+        List<Long> ids = LongStream.rangeClosed(1, UserService.MAX_BATCH_IDS + 1L).boxed().toList();
+        assertThrows(IllegalArgumentException.class, () -> userService.getUsersByIds(ids));
+    }
+
+    @Test
+    void getUsersByIds_shouldReturnEmptyForNoIds() {
+        UserBatchResponse result = userService.getUsersByIds(List.of());
+        assertThat(result.users()).isEmpty();
+        assertThat(result.missingIds()).isEmpty();
+    }
+
+    private static User userWithId(Long id) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("user" + id);
+        user.setEmail("user" + id + "@email.com");
+        return user;
     }
 } 
\ No newline at end of file
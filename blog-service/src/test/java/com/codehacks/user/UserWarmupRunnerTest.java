@@ -0,0 +1,81 @@
+package com.codehacks.user;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserWarmupRunnerTest {
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        UserResponse user = new UserResponse(1L, "author", "author@email.com", LocalDateTime.now());
+        when(userRepository.findRecentIds(any(Pageable.class))).thenReturn(List.of(1L));
+        when(userRepository.count()).thenReturn(1L);
+        when(userService.loadUserById(anyLong())).thenReturn(Optional.empty());
+        when(userService.loadUserById(1L)).thenReturn(Optional.of(user));
+        when(userService.getUsersByIds(any())).thenReturn(new UserBatchResponse(List.of(user), List.of()));
+        when(userService.getAllUsers()).thenReturn(List.of(user));
+    }
+
+    @Test
+    void run_shouldDriveReadsAndRecordDuration() {
+        runner(Duration.ofSeconds(10)).run(null);
+
+        verify(userService, atLeastOnce()).loadUserById(1L);
+        verify(userService, never()).getUserById(any());
+        verify(userService, atLeastOnce()).getUsersByIds(any());
+        verify(userService, atLeastOnce()).getAllUsers();
+        verify(userService, never()).createUser(any());
+        verify(userService, never()).deleteUser(any());
+        // Whether latency settles within the budget depends on the machine; convergence
+        // itself is covered by WarmupLatencyTrackerTest.
+        assertThat(meterRegistry.find("blog.warmup.duration").timers())
+                .singleElement()
+                .satisfies(timer -> assertThat(timer.count()).isEqualTo(1));
+    }
+
+    @Test
+    void run_shouldStopWhenTimeBudgetIsSpent() {
+        runner(Duration.ZERO).run(null);
+
+        verify(userService, never()).loadUserById(any());
+        assertThat(meterRegistry.timer("blog.warmup.duration", "outcome", "budget").count()).isEqualTo(1);
+    }
+
+    private UserWarmupRunner runner(Duration timeBudget) {
+        MappingJackson2HttpMessageConverter converter =
+                new MappingJackson2HttpMessageConverter(new ObjectMapper().registerModule(new JavaTimeModule()));
+        return new UserWarmupRunner(new UserController(userService), userService, userRepository, new BCryptPasswordEncoder(4),
+                converter, meterRegistry, timeBudget, 4, 20, 3, 0.5, 2);
+    }
+}
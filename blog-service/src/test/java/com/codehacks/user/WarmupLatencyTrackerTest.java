@@ -0,0 +1,79 @@
+package com.codehacks.user;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WarmupLatencyTrackerTest {
+
+    @Test
+    void record_shouldNotBeStableWhileLatencyKeepsDropping() {
+        WarmupLatencyTracker tracker = new WarmupLatencyTracker(3, 0.15);
+
+        assertThat(tracker.record(round(10_000))).isFalse();
+        assertThat(tracker.record(round(5_000))).isFalse();
+        assertThat(tracker.record(round(2_000))).isFalse();
+        assertThat(tracker.record(round(1_000))).isFalse();
+        assertThat(tracker.rounds()).isEqualTo(4);
+    }
+
+    @Test
+    void record_shouldBeStableOnceLastRoundsAreWithinTolerance() {
+        WarmupLatencyTracker tracker = new WarmupLatencyTracker(3, 0.15);
+
+        tracker.record(round(10_000));
+        tracker.record(round(1_050));
+        tracker.record(round(1_000));
+
+        assertThat(tracker.record(round(1_100))).isTrue();
+        assertThat(tracker.lastP99()).isEqualTo(1_100);
+    }
+
+    @Test
+    void record_shouldWaitForASpikeToLeaveTheWindow() {
+        WarmupLatencyTracker tracker = new WarmupLatencyTracker(3, 0.15);
+
+        tracker.record(round(1_000));
+        tracker.record(round(1_000));
+        assertThat(tracker.record(round(1_000))).isTrue();
+
+        assertThat(tracker.record(round(3_000))).isFalse();
+        assertThat(tracker.record(round(1_000))).isFalse();
+        assertThat(tracker.record(round(1_000))).isFalse();
+        assertThat(tracker.record(round(1_000))).isTrue();
+        assertThat(tracker.rounds()).isEqualTo(7);
+    }
+
+    @Test
+    void record_shouldIgnoreEmptyRounds() {
+        WarmupLatencyTracker tracker = new WarmupLatencyTracker(2, 0.15);
+
+        assertThat(tracker.record(new long[0])).isFalse();
+        assertThat(tracker.rounds()).isZero();
+    }
+
+    @Test
+    void p99_shouldIgnoreTheFastestNinetyNinePercent() {
+        long[] latencies = LongStream.rangeClosed(1, 200).toArray();
+
+        assertThat(WarmupLatencyTracker.p99(latencies)).isEqualTo(198);
+    }
+
+    @Test
+    void constructor_shouldRejectSingleRoundWindow() {
+        assertThatThrownBy(() -> new WarmupLatencyTracker(1, 0.15))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static long[] round(long p99) {
+        long[] latencies = new long[100];
+        Arrays.fill(latencies, p99 / 2);
+        latencies[98] = p99;
+        latencies[99] = p99 * 10;
+        return latencies;
+    }
+}